@@ -0,0 +1,88 @@
+package com.example.ecoscan;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.ecoscan.core.TensorPreprocessor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tensorflow.lite.support.common.ops.NormalizeOp;
+import org.tensorflow.lite.support.image.ImageProcessor;
+import org.tensorflow.lite.support.image.TensorImage;
+import org.tensorflow.lite.support.image.ops.ResizeOp;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compara o {@link TensorPreprocessor} com a cadeia ImageProcessor que ele substituiu,
+ * em tempo e em valores, numa foto sintética de 12 MP.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TensorPreprocessorBenchmarkTest {
+
+    private static final String TAG = "EcoScanBenchmark";
+    private static final int INPUT_SIZE = 640;
+    private static final int WARMUP = 3;
+    private static final int RUNS = 10;
+
+    @Test
+    public void fusedPreprocessor_matchesAndBenchmarksImageProcessor() {
+        Bitmap bitmap = Bitmap.createBitmap(4000, 3000, Bitmap.Config.ARGB_8888);
+        for (int y = 0; y < bitmap.getHeight(); y++) {
+            for (int x = 0; x < bitmap.getWidth(); x++) {
+                bitmap.setPixel(x, y, Color.rgb(x * 255 / 4000, y * 255 / 3000, (x + y) % 256));
+            }
+        }
+
+        ImageProcessor imageProcessor = new ImageProcessor.Builder()
+                .add(new ResizeOp(INPUT_SIZE, INPUT_SIZE, ResizeOp.ResizeMethod.BILINEAR))
+                .add(new NormalizeOp(0f, 255f))
+                .build();
+        TensorPreprocessor preprocessor = new TensorPreprocessor(INPUT_SIZE, INPUT_SIZE);
+        BitmapPixelSource source = new BitmapPixelSource(bitmap);
+
+        ByteBuffer expected = null;
+        for (int i = 0; i < WARMUP; i++) {
+            expected = imageProcessor.process(TensorImage.fromBitmap(bitmap)).getBuffer();
+            preprocessor.process(source);
+        }
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < RUNS; i++) {
+            imageProcessor.process(TensorImage.fromBitmap(bitmap)).getBuffer();
+        }
+        long imageProcessorNs = (SystemClock.elapsedRealtimeNanos() - start) / RUNS;
+
+        ByteBuffer actual = null;
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < RUNS; i++) {
+            actual = preprocessor.process(source);
+        }
+        long fusedNs = (SystemClock.elapsedRealtimeNanos() - start) / RUNS;
+
+        Log.i(TAG, String.format(Locale.US, "ImageProcessor: %.2f ms, TensorPreprocessor: %.2f ms",
+                imageProcessorNs / 1e6, fusedNs / 1e6));
+
+        expected.rewind();
+        FloatBuffer expectedFloats = expected.asFloatBuffer();
+        FloatBuffer actualFloats = actual.asFloatBuffer();
+        assertEquals(expectedFloats.remaining(), actualFloats.remaining());
+        double totalDiff = 0;
+        for (int i = 0; i < expectedFloats.remaining(); i++) {
+            totalDiff += Math.abs(expectedFloats.get(i) - actualFloats.get(i));
+        }
+        // Os dois são bilineares, mas o Skia arredonda para 8 bits e amostra de forma um pouco diferente.
+        assertTrue(totalDiff / expectedFloats.remaining() < 0.02);
+        assertEquals(4000f / INPUT_SIZE, preprocessor.getScaleX(), 1e-6f);
+        assertEquals(3000f / INPUT_SIZE, preprocessor.getScaleY(), 1e-6f);
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.ecoscan;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.ecoscan.StageMetrics.Stage;
+import com.example.ecoscan.core.Detection;
+import com.example.ecoscan.core.TensorFormat;
+import com.example.ecoscan.core.TensorPreprocessor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Analisa muitas imagens da galeria em lotes: as imagens de um lote são decodificadas e
+ * pré-processadas em paralelo, cada uma na sua fatia do buffer de entrada, e o lote inteiro
+ * roda em um único {@code run} do Interpreter de lote do engine ({@link DetectorEngine#runBatch}).
+ *
+ * <p>O progresso fica em SharedPreferences depois de cada lote, então uma análise
+ * interrompida pode ser retomada com {@link #resume()}. Deve ser usado na main thread.
+ */
+final class BatchScanner {
+
+    interface Postprocessor {
+        /** Roda na thread de inferência; {@code offset} é o início da imagem em {@code output}. */
+        List<Detection> process(ByteBuffer output, int offset);
+    }
+
+    interface Listener {
+        void onProgress(int done, int total, float imagesPerSecond);
+
+        void onFinished(int total, long[] countsByLabel, float imagesPerSecond);
+
+        void onError(Exception e);
+    }
+
+    private static final String TAG = "EcoScanBatch";
+    private static final String PREFS_NAME = "ecoscan_batch";
+    private static final String KEY_URIS = "uris";
+    private static final String KEY_NEXT = "next";
+    private static final String KEY_COUNTS = "counts";
+    private static final int DECODE_THREADS = 2;
+
+    private final Context context;
+    private final BitmapPool bitmapPool;
+    private final DetectorEngine engine;
+    private final Postprocessor postprocessor;
+    private final Listener listener;
+    private final ExecutorService decodePool = Executors.newFixedThreadPool(DECODE_THREADS, r -> new Thread(r, "EcoScan-BatchDecode"));
+
+    private final int imageInputBytes;
+    private final int imageOutputElements;
+    private final int imageOutputBytes;
+    private final ByteBuffer batchInput;
+    private final ByteBuffer batchOutput;
+    private final ByteBuffer[] inputSlots;
+    private final TensorPreprocessor[] preprocessors;
+
+    private List<Uri> uris = new ArrayList<>();
+    private int next;
+    private long[] counts;
+    private InferenceExecutor.Task task;
+    private long runStartedAtMs;
+    private int processedThisRun;
+
+    BatchScanner(Context context, DetectorEngine engine, Postprocessor postprocessor, Listener listener) {
+        this.context = context.getApplicationContext();
+        bitmapPool = BitmapPool.get(context);
+        this.engine = engine;
+        this.postprocessor = postprocessor;
+        this.listener = listener;
+
+        TensorFormat inputFormat = engine.getInputFormat();
+        imageInputBytes = engine.getImageInputBytes();
+        imageOutputElements = engine.getImageOutputElements();
+        imageOutputBytes = engine.getImageOutputBytes();
+        int batchSize = DetectorEngine.BATCH_SIZE;
+        batchInput = ByteBuffer.allocateDirect(batchSize * imageInputBytes).order(ByteOrder.nativeOrder());
+        batchOutput = ByteBuffer.allocateDirect(batchSize * imageOutputBytes).order(ByteOrder.nativeOrder());
+        inputSlots = new ByteBuffer[batchSize];
+        preprocessors = new TensorPreprocessor[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            inputSlots[i] = DetectorEngine.view(batchInput, i * imageInputBytes, imageInputBytes);
+            preprocessors[i] = new TensorPreprocessor(engine.getInputWidth(), engine.getInputHeight(), inputFormat);
+        }
+        counts = new long[engine.getLabels().size()];
+    }
+
+    /** Quantas imagens ainda faltam de um lote interrompido; 0 quando não há. */
+    static int pendingCount(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int total = splitUris(prefs.getString(KEY_URIS, "")).size();
+        return Math.max(0, total - prefs.getInt(KEY_NEXT, 0));
+    }
+
+    static int pendingTotal(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return splitUris(prefs.getString(KEY_URIS, "")).size();
+    }
+
+    void start(List<Uri> selection) {
+        cancel();
+        uris = new ArrayList<>(selection);
+        next = 0;
+        counts = new long[engine.getLabels().size()];
+        saveState();
+        Log.d(TAG, "Lote iniciado com " + uris.size() + " imagens.");
+        startRun();
+    }
+
+    /** Continua de onde o lote salvo parou. */
+    void resume() {
+        cancel();
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        uris = splitUris(prefs.getString(KEY_URIS, ""));
+        next = Math.min(prefs.getInt(KEY_NEXT, 0), uris.size());
+        counts = new long[engine.getLabels().size()];
+        String[] savedCounts = prefs.getString(KEY_COUNTS, "").split(",");
+        for (int i = 0; i < counts.length && i < savedCounts.length; i++) {
+            try {
+                counts[i] = Long.parseLong(savedCounts[i]);
+            } catch (NumberFormatException ignored) {
+                // Estado antigo ou com outro número de labels: recomeça a contagem dessa classe.
+            }
+        }
+        Log.d(TAG, "Lote retomado em " + next + "/" + uris.size() + ".");
+        startRun();
+    }
+
+    /** Interrompe depois do lote em andamento; o progresso salvo permanece. */
+    void cancel() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /** Descarta o lote salvo e devolve as permissões de leitura das imagens. */
+    void discard() {
+        cancel();
+        List<Uri> saved = splitUris(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).getString(KEY_URIS, ""));
+        releasePermissions(saved);
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit().clear().apply();
+    }
+
+    void release() {
+        cancel();
+        decodePool.shutdown();
+    }
+
+    boolean isRunning() {
+        return task != null;
+    }
+
+    private void startRun() {
+        runStartedAtMs = SystemClock.elapsedRealtime();
+        processedThisRun = 0;
+        if (next >= uris.size()) {
+            finish();
+            return;
+        }
+        scheduleNext();
+    }
+
+    private void scheduleNext() {
+        int start = next;
+        int count = Math.min(DetectorEngine.BATCH_SIZE, uris.size() - start);
+        List<Uri> chunk = new ArrayList<>(uris.subList(start, start + count));
+        task = InferenceExecutor.get().submit(() -> runChunk(chunk), new InferenceExecutor.Callback<Detection[]>() {
+            @Override
+            public void onResult(Detection[] best, InferenceExecutor.Timing timing) {
+                ScanHistory history = ScanHistory.get(context);
+                for (Detection detection : best) {
+                    if (detection == null) continue;
+                    history.record(detection, 0);
+                    if (detection.classIndex >= 0 && detection.classIndex < counts.length) counts[detection.classIndex]++;
+                }
+                next = start + count;
+                processedThisRun += count;
+                saveState();
+                if (next < uris.size()) {
+                    scheduleNext();
+                    listener.onProgress(next, uris.size(), imagesPerSecond());
+                } else {
+                    finish();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                task = null;
+                Log.e(TAG, "Erro no lote " + start + "-" + (start + count) + ".", e);
+                listener.onError(e);
+            }
+        });
+    }
+
+    private void finish() {
+        task = null;
+        int total = uris.size();
+        long[] finalCounts = counts.clone();
+        float rate = imagesPerSecond();
+        ScanHistory.get(context).flush();
+        discard();
+        Log.d(TAG, "Lote concluído: " + total + " imagens, " + rate + " img/s.");
+        listener.onFinished(total, finalCounts, rate);
+    }
+
+    private float imagesPerSecond() {
+        long elapsedMs = SystemClock.elapsedRealtime() - runStartedAtMs;
+        return elapsedMs > 0 ? processedThisRun * 1000f / elapsedMs : 0f;
+    }
+
+    /** Thread de inferência. Retorna a melhor detecção de cada imagem ({@code null} se nenhuma). */
+    private Detection[] runChunk(List<Uri> chunk) throws Exception {
+        int count = chunk.size();
+        List<Callable<Boolean>> decodeJobs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int slot = i;
+            Uri uri = chunk.get(i);
+            decodeJobs.add(() -> decodeInto(slot, uri));
+        }
+        List<Future<Boolean>> decoded = decodePool.invokeAll(decodeJobs);
+
+        engine.runBatch(batchInput, batchOutput, count);
+
+        Detection[] best = new Detection[count];
+        for (int i = 0; i < count; i++) {
+            if (!decoded.get(i).get()) continue;
+            List<Detection> detections = postprocessor.process(batchOutput, i * imageOutputElements);
+            best[i] = detections.isEmpty() ? null : detections.get(0);
+        }
+        return best;
+    }
+
+    /** Pool de decodificação; cada slot tem seu próprio pré-processador e fatia de entrada. */
+    private boolean decodeInto(int slot, Uri uri) {
+        ContentResolver resolver = context.getContentResolver();
+        ImageLoader.InferenceImage image = null;
+        try {
+            StageMetrics.begin(Stage.LOAD_BITMAP);
+            image = ImageLoader.decodeForInference(resolver, uri,
+                    engine.getInputWidth(), engine.getInputHeight(), bitmapPool);
+            StageMetrics.end(Stage.LOAD_BITMAP);
+            StageMetrics.begin(Stage.PREPROCESS);
+            preprocessors[slot].process(image.pixels(), inputSlots[slot]);
+            StageMetrics.end(Stage.PREPROCESS);
+            return true;
+        } catch (Exception | OutOfMemoryError e) {
+            // Arquivo corrompido, enorme ou sem permissão: pula só esta imagem. Se a falha
+            // derrubasse o lote, cada resume() pararia de novo no mesmo arquivo.
+            Log.w(TAG, "Imagem ignorada no lote: " + uri, e);
+            return false;
+        } finally {
+            // Já está na entrada do modelo (ou falhou); o bitmap serve para a próxima imagem do lote.
+            if (image != null) bitmapPool.release(image.bitmap);
+        }
+    }
+
+    private void saveState() {
+        StringBuilder joinedUris = new StringBuilder();
+        for (Uri uri : uris) {
+            if (joinedUris.length() > 0) joinedUris.append('\n');
+            joinedUris.append(uri.toString());
+        }
+        StringBuilder joinedCounts = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            if (i > 0) joinedCounts.append(',');
+            joinedCounts.append(counts[i]);
+        }
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putString(KEY_URIS, joinedUris.toString())
+                .putInt(KEY_NEXT, next)
+                .putString(KEY_COUNTS, joinedCounts.toString())
+                .apply();
+    }
+
+    private void releasePermissions(List<Uri> saved) {
+        ContentResolver resolver = context.getContentResolver();
+        for (Uri uri : saved) {
+            try {
+                resolver.releasePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            } catch (SecurityException ignored) {
+                // A permissão não era persistente (ou já foi revogada).
+            }
+        }
+    }
+
+    private static List<Uri> splitUris(String joined) {
+        List<Uri> result = new ArrayList<>();
+        if (joined.isEmpty()) return result;
+        for (String value : joined.split("\n")) {
+            result.add(Uri.parse(value));
+        }
+        return result;
+    }
+}
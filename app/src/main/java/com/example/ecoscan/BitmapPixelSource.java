@@ -0,0 +1,67 @@
+package com.example.ecoscan;
+
+import android.graphics.Bitmap;
+
+import com.example.ecoscan.core.PixelSource;
+
+/**
+ * Expõe um Bitmap de software para o {@link com.example.ecoscan.core.TensorPreprocessor},
+ * opcionalmente girado (rotação EXIF) sem criar um bitmap girado: com 90° ou 270° cada
+ * linha lida é uma coluna do bitmap.
+ */
+final class BitmapPixelSource implements PixelSource {
+
+    private final Bitmap bitmap;
+    private final int rotationDegrees;
+
+    BitmapPixelSource(Bitmap bitmap) {
+        this(bitmap, 0);
+    }
+
+    /** @param rotationDegrees 0, 90, 180 ou 270, no sentido horário */
+    BitmapPixelSource(Bitmap bitmap, int rotationDegrees) {
+        this.bitmap = bitmap;
+        this.rotationDegrees = rotationDegrees;
+    }
+
+    @Override
+    public int getWidth() {
+        return rotationDegrees % 180 == 0 ? bitmap.getWidth() : bitmap.getHeight();
+    }
+
+    @Override
+    public int getHeight() {
+        return rotationDegrees % 180 == 0 ? bitmap.getHeight() : bitmap.getWidth();
+    }
+
+    @Override
+    public void getRow(int y, int[] argb) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        switch (rotationDegrees) {
+            case 90:
+                // Linha y = coluna y, de baixo para cima.
+                bitmap.getPixels(argb, 0, 1, y, 0, 1, height);
+                reverse(argb, height);
+                break;
+            case 180:
+                bitmap.getPixels(argb, 0, width, 0, height - 1 - y, width, 1);
+                reverse(argb, width);
+                break;
+            case 270:
+                // Linha y = coluna (largura - 1 - y), de cima para baixo.
+                bitmap.getPixels(argb, 0, 1, width - 1 - y, 0, 1, height);
+                break;
+            default:
+                bitmap.getPixels(argb, 0, width, 0, y, width, 1);
+        }
+    }
+
+    private static void reverse(int[] values, int count) {
+        for (int i = 0, j = count - 1; i < j; i++, j--) {
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+}
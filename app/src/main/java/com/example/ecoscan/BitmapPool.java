@@ -0,0 +1,150 @@
+package com.example.ecoscan;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bitmaps mutáveis ARGB_8888 devolvidos depois do uso, separados por tamanho de alocação,
+ * para a próxima decodificação (via {@code inBitmap}) ou cópia reaproveitar a memória em
+ * vez de alocar outro bitmap de vários MB. O total guardado é limitado a um orçamento em
+ * bytes e encolhe com {@code onTrimMemory}. Pode ser usado de qualquer thread.
+ */
+final class BitmapPool implements ComponentCallbacks2 {
+
+    private static final String TAG = "EcoScanBitmapPool";
+    /** Um bitmap guardado serve para um pedido de até metade do tamanho dele. */
+    private static final int MAX_WASTE_FACTOR = 2;
+
+    private static BitmapPool instance;
+
+    private final TreeMap<Integer, ArrayDeque<Bitmap>> buckets = new TreeMap<>();
+    private final long maxBytes;
+    private long pooledBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /** Orçamento de 1/8 do heap, até 32 MB. */
+    static synchronized BitmapPool get(Context context) {
+        if (instance == null) {
+            long budget = Math.min(Runtime.getRuntime().maxMemory() / 8, 32L * 1024 * 1024);
+            instance = new BitmapPool(budget);
+            context.getApplicationContext().registerComponentCallbacks(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * @return um bitmap mutável com pelo menos {@code bytes} de alocação, para
+     *         {@code inBitmap} ou {@link Bitmap#reconfigure}; {@code null} se não houver
+     */
+    synchronized Bitmap acquire(int bytes) {
+        Map.Entry<Integer, ArrayDeque<Bitmap>> entry = buckets.ceilingEntry(bytes);
+        if (entry == null || entry.getKey() > (long) bytes * MAX_WASTE_FACTOR) {
+            misses++;
+            return null;
+        }
+        Bitmap bitmap = entry.getValue().poll();
+        if (entry.getValue().isEmpty()) buckets.remove(entry.getKey());
+        pooledBytes -= entry.getKey();
+        hits++;
+        return bitmap;
+    }
+
+    /**
+     * Bitmap com exatamente {@code width} x {@code height}, reaproveitado se possível;
+     * o conteúdo é indefinido.
+     */
+    Bitmap acquire(int width, int height) {
+        Bitmap bitmap = acquire(width * height * 4);
+        if (bitmap != null) {
+            try {
+                bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+                return bitmap;
+            } catch (IllegalArgumentException e) {
+                bitmap.recycle();
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /** Devolve um bitmap que ninguém mais usa; os que não cabem no orçamento são reciclados. */
+    synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) return;
+        int size = bitmap.getAllocationByteCount();
+        if (!bitmap.isMutable() || bitmap.getConfig() != Bitmap.Config.ARGB_8888 || size > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+        ArrayDeque<Bitmap> bucket = buckets.get(size);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            buckets.put(size, bucket);
+        }
+        bucket.push(bitmap);
+        pooledBytes += size;
+        trimTo(maxBytes);
+    }
+
+    /** Descarta primeiro os maiores, que são os mais caros de manter. */
+    private void trimTo(long targetBytes) {
+        Iterator<Map.Entry<Integer, ArrayDeque<Bitmap>>> iterator = buckets.descendingMap().entrySet().iterator();
+        while (pooledBytes > targetBytes && iterator.hasNext()) {
+            Map.Entry<Integer, ArrayDeque<Bitmap>> entry = iterator.next();
+            ArrayDeque<Bitmap> bucket = entry.getValue();
+            while (pooledBytes > targetBytes && !bucket.isEmpty()) {
+                bucket.removeLast().recycle();
+                pooledBytes -= entry.getKey();
+                evictions++;
+            }
+            if (bucket.isEmpty()) iterator.remove();
+        }
+    }
+
+    @Override
+    public synchronized void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            trimTo(0);
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            trimTo(pooledBytes / 2);
+        }
+        Log.d(TAG, "onTrimMemory(" + level + "): " + pooledBytes / 1024 + " KB no pool.");
+    }
+
+    @Override
+    public synchronized void onLowMemory() {
+        trimTo(0);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized String describe() {
+        return String.format(Locale.US, "Pool de bitmaps: %d acertos, %d faltas, %d descartes, %.1f de %.1f MB em uso",
+                hits, misses, evictions, pooledBytes / 1048576f, maxBytes / 1048576f);
+    }
+}
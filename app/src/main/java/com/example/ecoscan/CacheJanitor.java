@@ -0,0 +1,130 @@
+package com.example.ecoscan;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Mantém {@code cacheDir/images} (fotos do app de câmera e imagens anotadas exportadas) abaixo
+ * de um limite de tamanho e de idade. Sai primeiro o que foi usado há mais tempo: cada arquivo
+ * é gravado uma vez e lido logo em seguida, então a data de modificação é a do último uso.
+ * Arquivos recentes nunca saem, porque ainda podem estar sendo gravados pela câmera ou lidos
+ * pelo app com quem a imagem foi compartilhada.
+ */
+final class CacheJanitor {
+
+    static final class Result {
+        final int filesDeleted;
+        final long bytesReclaimed;
+        final long bytesKept;
+
+        Result(int filesDeleted, long bytesReclaimed, long bytesKept) {
+            this.filesDeleted = filesDeleted;
+            this.bytesReclaimed = bytesReclaimed;
+            this.bytesKept = bytesKept;
+        }
+    }
+
+    static final String IMAGES_DIR = "images";
+    static final long DEFAULT_MAX_BYTES = 50L * 1024 * 1024;
+    static final long DEFAULT_MAX_AGE_MS = 3L * 24 * 60 * 60 * 1000;
+    static final long PROTECT_RECENT_MS = 10L * 60 * 1000;
+
+    private static final String TAG = "EcoScanCache";
+    private static final String PREFS_NAME = "ecoscan_cache";
+    private static final String KEY_MAX_BYTES = "max_bytes";
+    private static final String KEY_MAX_AGE_MS = "max_age_ms";
+    private static final String KEY_RECLAIMED = "bytes_reclaimed";
+    private static final String KEY_DELETED = "files_deleted";
+
+    private static final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "EcoScan-CacheJanitor");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private CacheJanitor() {
+    }
+
+    static File imagesDir(Context context) {
+        return new File(context.getCacheDir(), IMAGES_DIR);
+    }
+
+    /** Limpa em segundo plano com os limites salvos e soma o que foi liberado ao total. */
+    static void trimAsync(Context context) {
+        Context appContext = context.getApplicationContext();
+        worker.execute(() -> {
+            SharedPreferences prefs = prefs(appContext);
+            Result result = trim(imagesDir(appContext), prefs.getLong(KEY_MAX_BYTES, DEFAULT_MAX_BYTES),
+                    prefs.getLong(KEY_MAX_AGE_MS, DEFAULT_MAX_AGE_MS), PROTECT_RECENT_MS, System.currentTimeMillis());
+            if (result.filesDeleted == 0) return;
+            prefs.edit()
+                    .putLong(KEY_RECLAIMED, prefs.getLong(KEY_RECLAIMED, 0) + result.bytesReclaimed)
+                    .putLong(KEY_DELETED, prefs.getLong(KEY_DELETED, 0) + result.filesDeleted)
+                    .apply();
+            Log.d(TAG, String.format(Locale.US, "%d imagens removidas, %.1f MB liberados, %.1f MB mantidos.",
+                    result.filesDeleted, result.bytesReclaimed / 1048576f, result.bytesKept / 1048576f));
+        });
+    }
+
+    static void setLimits(Context context, long maxBytes, long maxAgeMs) {
+        prefs(context).edit().putLong(KEY_MAX_BYTES, maxBytes).putLong(KEY_MAX_AGE_MS, maxAgeMs).apply();
+        trimAsync(context);
+    }
+
+    /** Total liberado desde a instalação, ex.: "Cache de imagens: 12 arquivos, 30.5 MB liberados". */
+    static String describe(Context context) {
+        SharedPreferences prefs = prefs(context);
+        return String.format(Locale.US, "Cache de imagens: %d arquivos, %.1f MB liberados (limite %.0f MB, %d dias).",
+                prefs.getLong(KEY_DELETED, 0), prefs.getLong(KEY_RECLAIMED, 0) / 1048576f,
+                prefs.getLong(KEY_MAX_BYTES, DEFAULT_MAX_BYTES) / 1048576f,
+                prefs.getLong(KEY_MAX_AGE_MS, DEFAULT_MAX_AGE_MS) / (24 * 60 * 60 * 1000));
+    }
+
+    /**
+     * Remove de {@code dir} os arquivos mais velhos que {@code maxAgeMs} e, se o resto passar de
+     * {@code maxBytes}, os menos recentes até caber. Os modificados há menos de
+     * {@code protectRecentMs} ficam sempre.
+     */
+    static Result trim(File dir, long maxBytes, long maxAgeMs, long protectRecentMs, long nowMs) {
+        File[] files = dir.listFiles(File::isFile);
+        if (files == null || files.length == 0) return new Result(0, 0, 0);
+        long[] modified = new long[files.length];
+        long[] sizes = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        long total = 0;
+        for (int i = 0; i < files.length; i++) {
+            // Lidos uma vez: a ordenação não pode ver valores mudando no meio.
+            modified[i] = files[i].lastModified();
+            sizes[i] = files[i].length();
+            order[i] = i;
+            total += sizes[i];
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> modified[i]));
+
+        int deleted = 0;
+        long reclaimed = 0;
+        for (int i : order) {
+            long age = nowMs - modified[i];
+            if (age < protectRecentMs) break;
+            if (age <= maxAgeMs && total <= maxBytes) break;
+            if (files[i].delete()) {
+                deleted++;
+                reclaimed += sizes[i];
+                total -= sizes[i];
+            }
+        }
+        return new Result(deleted, reclaimed, total);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
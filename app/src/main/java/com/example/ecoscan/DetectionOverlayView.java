@@ -0,0 +1,176 @@
+package com.example.ecoscan;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+import android.widget.ImageView;
+
+import androidx.annotation.Nullable;
+
+import com.example.ecoscan.StageMetrics.Stage;
+import com.example.ecoscan.core.Detection;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Desenha caixas e etiquetas por cima de um ImageView, sem tocar no bitmap exibido. As
+ * coordenadas (normalizadas pela imagem) são mapeadas para a view conforme o scaleType
+ * do ImageView (FIT_CENTER ou CENTER_CROP). Paints, métricas do texto e as etiquetas são
+ * reaproveitados entre os frames; uma cópia em tamanho real só é feita ao exportar, por
+ * {@link #renderAnnotated(Bitmap)}.
+ */
+public class DetectionOverlayView extends View {
+
+    private static final int[] PALETTE = {
+            Color.parseColor("#D32F2F"),
+            Color.parseColor("#1976D2"),
+            Color.parseColor("#FBC02D"),
+            Color.parseColor("#388E3C"),
+            Color.parseColor("#5D4037"),
+            Color.parseColor("#FF5722")
+    };
+
+    /** Paints e retângulos de trabalho; a view tem o seu e cada exportação cria outro. */
+    private static final class Painter {
+        final Paint boxPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        final Paint chipPaint = new Paint();
+        final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        final Paint.FontMetrics fontMetrics = new Paint.FontMetrics();
+        final RectF box = new RectF();
+        final RectF chip = new RectF();
+
+        Painter() {
+            boxPaint.setStyle(Paint.Style.STROKE);
+            chipPaint.setStyle(Paint.Style.FILL);
+            textPaint.setColor(Color.WHITE);
+            textPaint.setStyle(Paint.Style.FILL);
+            textPaint.setTextAlign(Paint.Align.LEFT);
+        }
+
+        void draw(Canvas canvas, List<Detection> detections, String[] labels, int boxColor, boolean showLabels,
+                  float width, float height, float offsetX, float offsetY,
+                  float strokeWidth, float textSize, float padding) {
+            boxPaint.setStrokeWidth(strokeWidth);
+            textPaint.setTextSize(textSize);
+            textPaint.getFontMetrics(fontMetrics);
+            float textHeight = fontMetrics.descent - fontMetrics.ascent;
+
+            for (int i = 0; i < detections.size(); i++) {
+                Detection detection = detections.get(i);
+                int color = boxColor != 0 ? boxColor : PALETTE[i % PALETTE.length];
+                boxPaint.setColor(color);
+                box.set(offsetX + detection.boundingBox.left * width,
+                        offsetY + detection.boundingBox.top * height,
+                        offsetX + detection.boundingBox.right * width,
+                        offsetY + detection.boundingBox.bottom * height);
+                canvas.drawRect(box, boxPaint);
+                if (!showLabels) continue;
+
+                // Etiqueta acima da caixa; abaixo dela se não couber.
+                float chipTop = box.top - textHeight - padding * 2;
+                float chipBottom = box.top;
+                if (chipTop < 0) {
+                    chipTop = box.bottom;
+                    chipBottom = box.bottom + textHeight + padding * 2;
+                }
+                chip.set(box.left, chipTop, box.left + textPaint.measureText(labels[i]) + padding * 2, chipBottom);
+                chipPaint.setColor(color);
+                canvas.drawRect(chip, chipPaint);
+                canvas.drawText(labels[i], chip.left + padding, chip.top - fontMetrics.ascent + padding, textPaint);
+            }
+        }
+    }
+
+    private final Painter painter = new Painter();
+    private final float strokeWidthPx;
+    private final float textSizePx;
+    private final float paddingPx;
+
+    private List<Detection> detections = Collections.emptyList();
+    private String[] labels = new String[0];
+    private boolean showLabels;
+    private int boxColor;
+    private int imageWidth;
+    private int imageHeight;
+    private ImageView.ScaleType scaleType = ImageView.ScaleType.FIT_CENTER;
+
+    public DetectionOverlayView(Context context) {
+        this(context, null);
+    }
+
+    public DetectionOverlayView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        strokeWidthPx = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 3, getResources().getDisplayMetrics());
+        textSizePx = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 14, getResources().getDisplayMetrics());
+        paddingPx = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 4, getResources().getDisplayMetrics());
+    }
+
+    /** Tamanho do bitmap mostrado no ImageView de baixo e o scaleType dele. */
+    void setImage(int width, int height, ImageView.ScaleType scaleType) {
+        imageWidth = width;
+        imageHeight = height;
+        this.scaleType = scaleType;
+        invalidate();
+    }
+
+    /**
+     * @param boxColor cor única para todas as caixas, ou 0 para uma cor por detecção
+     * @param showLabels desenha a etiqueta "label: confiança" de cada caixa
+     */
+    void setDetections(List<Detection> detections, int boxColor, boolean showLabels) {
+        this.detections = detections;
+        this.boxColor = boxColor;
+        this.showLabels = showLabels;
+        labels = new String[detections.size()];
+        for (int i = 0; i < labels.length; i++) {
+            Detection detection = detections.get(i);
+            labels[i] = String.format(Locale.US, "%s: %.1f%%", detection.label, detection.confidence * 100);
+        }
+        invalidate();
+    }
+
+    void clear() {
+        setDetections(Collections.emptyList(), 0, false);
+    }
+
+    boolean hasDetections() {
+        return !detections.isEmpty();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (detections.isEmpty() || imageWidth == 0 || imageHeight == 0) return;
+        StageMetrics.begin(Stage.DRAW);
+        float scaleX = getWidth() / (float) imageWidth;
+        float scaleY = getHeight() / (float) imageHeight;
+        float scale = scaleType == ImageView.ScaleType.CENTER_CROP ? Math.max(scaleX, scaleY) : Math.min(scaleX, scaleY);
+        float offsetX = (getWidth() - imageWidth * scale) / 2f;
+        float offsetY = (getHeight() - imageHeight * scale) / 2f;
+        painter.draw(canvas, detections, labels, boxColor, showLabels, imageWidth * scale, imageHeight * scale,
+                offsetX, offsetY, strokeWidthPx, textSizePx, paddingPx);
+        StageMetrics.end(Stage.DRAW);
+    }
+
+    /**
+     * Cópia de {@code source} com as detecções atuais desenhadas em tamanho real, com traço e
+     * texto proporcionais à imagem. Aloca um bitmap do tamanho da fonte, então é só para
+     * exportar; pode rodar fora da main thread.
+     */
+    Bitmap renderAnnotated(Bitmap source) {
+        Bitmap annotated = source.copy(Bitmap.Config.ARGB_8888, true);
+        Canvas canvas = new Canvas(annotated);
+        float longSide = Math.max(annotated.getWidth(), annotated.getHeight());
+        new Painter().draw(canvas, detections, labels, boxColor, showLabels, annotated.getWidth(), annotated.getHeight(),
+                0f, 0f, longSide / 120f, 30 * longSide / 600f, 8 * longSide / 600f);
+        return annotated;
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.ecoscan;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import com.example.ecoscan.core.BoundingBox;
+import com.example.ecoscan.core.Detection;
+import com.example.ecoscan.core.LabelMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cache LRU de resultados indexado pelo dHash (64 bits) da imagem, com busca por
+ * quase-duplicatas via distância de Hamming. Persiste em disco com limite de tamanho e
+ * é descartado quando o modelo ou os labels mudam (fingerprint do {@link DetectorEngine}).
+ * Deve ser usado só na thread do {@link InferenceExecutor}.
+ *
+ * <p>A gravação não acontece a cada resultado novo: depois de {@link #SAVE_EVERY_PUTS}
+ * inserções, ou em {@link #flush()}, uma cópia das entradas é gravada numa thread própria.
+ */
+final class DetectionResultCache {
+
+    private static final String TAG = "EcoScanCache";
+    private static final int MAGIC = 0x45434331; // "ECC1"
+    private static final int ENTRY_HEADER_BYTES = 8 + 4;
+    private static final int DETECTION_BYTES = 4 + 5 * 4;
+    private static final int SAVE_EVERY_PUTS = 8;
+    // Uma thread para todos os caches: as gravações saem na ordem em que foram pedidas.
+    private static final ExecutorService io = Executors.newSingleThreadExecutor(r -> new Thread(r, "EcoScan-ResultCache"));
+
+    private static final class Entry {
+        final int[] classes;
+        final float[] values; // confiança, left, top, right, bottom por detecção
+
+        Entry(int[] classes, float[] values) {
+            this.classes = classes;
+            this.values = values;
+        }
+
+        int sizeBytes() {
+            return ENTRY_HEADER_BYTES + classes.length * DETECTION_BYTES;
+        }
+    }
+
+    private final File file;
+    private final long fingerprint;
+    private final int maxBytes;
+    private final int maxHammingDistance;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int totalBytes;
+    private long hits;
+    private long misses;
+    private int unsavedPuts;
+
+    DetectionResultCache(File file, long fingerprint, int maxBytes, int maxHammingDistance) {
+        this.file = file;
+        this.fingerprint = fingerprint;
+        this.maxBytes = maxBytes;
+        this.maxHammingDistance = maxHammingDistance;
+    }
+
+    static long dHash(Bitmap bitmap) {
+        Bitmap small = Bitmap.createScaledBitmap(bitmap, 9, 8, true);
+        int[] pixels = new int[9 * 8];
+        small.getPixels(pixels, 0, 9, 0, 0, 9, 8);
+        if (small != bitmap) small.recycle();
+        return dHash(pixels);
+    }
+
+    /** dHash de uma imagem ARGB 9x8: um bit por par de vizinhos horizontais. */
+    static long dHash(int[] argb9x8) {
+        long hash = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                if (luma(argb9x8[y * 9 + x]) > luma(argb9x8[y * 9 + x + 1])) {
+                    hash |= 1L << (y * 8 + x);
+                }
+            }
+        }
+        return hash;
+    }
+
+    private static int luma(int argb) {
+        return (((argb >> 16) & 0xFF) * 299 + ((argb >> 8) & 0xFF) * 587 + (argb & 0xFF) * 114) / 1000;
+    }
+
+    /** @return as detecções da imagem igual ou quase igual, ou {@code null} */
+    List<Detection> get(long hash, LabelMap labels) {
+        Entry entry = entries.get(hash);
+        if (entry == null) {
+            long bestKey = 0;
+            int bestDistance = maxHammingDistance + 1;
+            for (Long key : entries.keySet()) {
+                int distance = Long.bitCount(key ^ hash);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    bestKey = key;
+                }
+            }
+            if (bestDistance <= maxHammingDistance) {
+                entry = entries.get(bestKey);
+            }
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        List<Detection> detections = new ArrayList<>(entry.classes.length);
+        for (int i = 0; i < entry.classes.length; i++) {
+            int classIndex = entry.classes[i];
+            float[] v = entry.values;
+            BoundingBox box = new BoundingBox(v[i * 5 + 1], v[i * 5 + 2], v[i * 5 + 3], v[i * 5 + 4]);
+            detections.add(new Detection(box, labels.labelFor(classIndex), classIndex, v[i * 5]));
+        }
+        return detections;
+    }
+
+    void put(long hash, List<Detection> detections) {
+        int[] classes = new int[detections.size()];
+        float[] values = new float[detections.size() * 5];
+        for (int i = 0; i < classes.length; i++) {
+            Detection detection = detections.get(i);
+            classes[i] = detection.classIndex;
+            values[i * 5] = detection.confidence;
+            values[i * 5 + 1] = detection.boundingBox.left;
+            values[i * 5 + 2] = detection.boundingBox.top;
+            values[i * 5 + 3] = detection.boundingBox.right;
+            values[i * 5 + 4] = detection.boundingBox.bottom;
+        }
+        Entry entry = new Entry(classes, values);
+        Entry previous = entries.put(hash, entry);
+        if (previous != null) totalBytes -= previous.sizeBytes();
+        totalBytes += entry.sizeBytes();
+        evictToBudget();
+        if (++unsavedPuts >= SAVE_EVERY_PUTS) flush();
+    }
+
+    /** Grava em segundo plano o que ainda não foi gravado (ex.: ao sair da tela). */
+    void flush() {
+        if (unsavedPuts == 0) return;
+        unsavedPuts = 0;
+        // As entradas são imutáveis; basta copiar as referências, na ordem do LRU.
+        long[] keys = new long[entries.size()];
+        Entry[] values = new Entry[entries.size()];
+        int i = 0;
+        for (Map.Entry<Long, Entry> e : entries.entrySet()) {
+            keys[i] = e.getKey();
+            values[i] = e.getValue();
+            i++;
+        }
+        io.execute(() -> save(keys, values));
+    }
+
+    private void evictToBudget() {
+        Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            totalBytes -= iterator.next().getValue().sizeBytes();
+            iterator.remove();
+        }
+    }
+
+    void load() {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readLong() != fingerprint) {
+                Log.d(TAG, "Modelo ou labels mudaram; cache descartado.");
+                file.delete();
+                return;
+            }
+            int count = in.readInt();
+            for (int e = 0; e < count; e++) {
+                long hash = in.readLong();
+                int n = in.readInt();
+                int[] classes = new int[n];
+                float[] values = new float[n * 5];
+                for (int i = 0; i < n; i++) {
+                    classes[i] = in.readInt();
+                    for (int k = 0; k < 5; k++) {
+                        values[i * 5 + k] = in.readFloat();
+                    }
+                }
+                Entry entry = new Entry(classes, values);
+                entries.put(hash, entry);
+                totalBytes += entry.sizeBytes();
+            }
+            evictToBudget();
+            Log.d(TAG, "Cache carregado: " + entries.size() + " imagens.");
+        } catch (IOException e) {
+            Log.w(TAG, "Cache corrompido; descartado.", e);
+            entries.clear();
+            totalBytes = 0;
+            file.delete();
+        }
+    }
+
+    private void save(long[] keys, Entry[] values) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(fingerprint);
+            out.writeInt(keys.length);
+            // Do menos para o mais recente; o load preserva o LRU.
+            for (int e = 0; e < keys.length; e++) {
+                Entry entry = values[e];
+                out.writeLong(keys[e]);
+                out.writeInt(entry.classes.length);
+                for (int i = 0; i < entry.classes.length; i++) {
+                    out.writeInt(entry.classes[i]);
+                    for (int k = 0; k < 5; k++) {
+                        out.writeFloat(entry.values[i * 5 + k]);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Falha ao gravar o cache.", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+}
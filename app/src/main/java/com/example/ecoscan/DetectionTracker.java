@@ -0,0 +1,177 @@
+package com.example.ecoscan;
+
+import android.graphics.RectF;
+
+import com.example.ecoscan.core.BoundingBox;
+import com.example.ecoscan.core.Detection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Rastreador por IoU para o modo ao vivo: o detector roda só a cada N frames (ou quando
+ * a confiança dos tracks cai) e, nos frames intermediários, as caixas são propagadas
+ * com velocidade constante. Deve ser usado sempre da mesma thread.
+ */
+final class DetectionTracker {
+
+    enum RedetectPolicy {
+        /** Inferência a cada {@code detectEveryNFrames} frames. */
+        EVERY_N_FRAMES,
+        /** Inferência quando a confiança do melhor track fica abaixo de {@code minTrackConfidence}. */
+        CONFIDENCE_DECAY,
+        /** O que acontecer primeiro. */
+        EVERY_N_FRAMES_OR_CONFIDENCE_DECAY
+    }
+
+    static final class Config {
+        RedetectPolicy policy = RedetectPolicy.EVERY_N_FRAMES_OR_CONFIDENCE_DECAY;
+        int detectEveryNFrames = 5;
+        float minTrackConfidence = 0.35f;
+        float confidenceDecayPerFrame = 0.9f;
+        float matchIouThreshold = 0.3f;
+        int maxMissedDetections = 1;
+    }
+
+    private static final class Track {
+        final RectF box = new RectF();
+        float velocityX;
+        float velocityY;
+        String label;
+        int classIndex;
+        float confidence;
+        int missed;
+        boolean matched;
+    }
+
+    private final Config config;
+    private final List<Track> tracks = new ArrayList<>();
+    private int framesSinceDetection;
+    private volatile long inferenceRuns;
+    private volatile long skippedFrames;
+
+    DetectionTracker(Config config) {
+        this.config = config;
+    }
+
+    boolean shouldDetect() {
+        if (tracks.isEmpty()) return true;
+        boolean frameBudgetSpent = framesSinceDetection + 1 >= config.detectEveryNFrames;
+        boolean confidenceDecayed = bestConfidence() < config.minTrackConfidence;
+        switch (config.policy) {
+            case EVERY_N_FRAMES: return frameBudgetSpent;
+            case CONFIDENCE_DECAY: return confidenceDecayed;
+            default: return frameBudgetSpent || confidenceDecayed;
+        }
+    }
+
+    /** Atualiza os tracks com o resultado de uma inferência (ordenado por confiança, como sai da NMS). */
+    List<Detection> update(List<Detection> detections) {
+        inferenceRuns++;
+        int elapsedFrames = framesSinceDetection + 1;
+        framesSinceDetection = 0;
+        for (Track track : tracks) {
+            track.matched = false;
+        }
+
+        List<Track> created = new ArrayList<>();
+        for (Detection detection : detections) {
+            Track best = null;
+            float bestIou = config.matchIouThreshold;
+            for (Track track : tracks) {
+                if (track.matched) continue;
+                float iou = iou(track.box, detection.boundingBox);
+                if (iou >= bestIou) {
+                    bestIou = iou;
+                    best = track;
+                }
+            }
+            if (best == null) {
+                best = new Track();
+                set(best.box, detection.boundingBox);
+                created.add(best);
+            } else {
+                best.velocityX = (detection.boundingBox.centerX() - best.box.centerX()) / elapsedFrames;
+                best.velocityY = (detection.boundingBox.centerY() - best.box.centerY()) / elapsedFrames;
+                set(best.box, detection.boundingBox);
+            }
+            best.label = detection.label;
+            best.classIndex = detection.classIndex;
+            best.confidence = detection.confidence;
+            best.missed = 0;
+            best.matched = true;
+        }
+
+        for (int i = tracks.size() - 1; i >= 0; i--) {
+            Track track = tracks.get(i);
+            if (!track.matched && ++track.missed > config.maxMissedDetections) {
+                tracks.remove(i);
+            }
+        }
+        tracks.addAll(created);
+        return currentDetections();
+    }
+
+    /** Avança um frame sem inferência. */
+    List<Detection> predict() {
+        skippedFrames++;
+        framesSinceDetection++;
+        for (Track track : tracks) {
+            track.box.offset(track.velocityX, track.velocityY);
+            track.confidence *= config.confidenceDecayPerFrame;
+        }
+        return currentDetections();
+    }
+
+    private List<Detection> currentDetections() {
+        List<Detection> detections = new ArrayList<>(tracks.size());
+        for (Track track : tracks) {
+            BoundingBox box = new BoundingBox(track.box.left, track.box.top, track.box.right, track.box.bottom);
+            detections.add(new Detection(box, track.label, track.classIndex, track.confidence));
+        }
+        detections.sort((a, b) -> Float.compare(b.confidence, a.confidence));
+        return detections;
+    }
+
+    private float bestConfidence() {
+        float best = 0f;
+        for (Track track : tracks) {
+            best = Math.max(best, track.confidence);
+        }
+        return best;
+    }
+
+    private static void set(RectF target, BoundingBox source) {
+        target.set(source.left, source.top, source.right, source.bottom);
+    }
+
+    private static float iou(RectF a, BoundingBox b) {
+        float interWidth = Math.max(0, Math.min(a.right, b.right) - Math.max(a.left, b.left));
+        float interHeight = Math.max(0, Math.min(a.bottom, b.bottom) - Math.max(a.top, b.top));
+        float interArea = interWidth * interHeight;
+        float unionArea = a.width() * a.height() + b.width() * b.height() - interArea;
+        return unionArea > 0 ? interArea / unionArea : 0f;
+    }
+
+    void reset() {
+        tracks.clear();
+        framesSinceDetection = 0;
+    }
+
+    long getInferenceRuns() {
+        return inferenceRuns;
+    }
+
+    /** Frames servidos pelo rastreador, ou seja, inferências economizadas. */
+    long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    String describeSavings() {
+        long total = inferenceRuns + skippedFrames;
+        float saved = total == 0 ? 0f : 100f * skippedFrames / total;
+        return String.format(Locale.US, "%d inferências, %d frames rastreados (%.0f%% economizado)",
+                inferenceRuns, skippedFrames, saved);
+    }
+}
@@ -0,0 +1,657 @@
+package com.example.ecoscan;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.ecoscan.StageMetrics.Stage;
+import com.example.ecoscan.core.CascadePolicy;
+import com.example.ecoscan.core.Detection;
+import com.example.ecoscan.core.DetectionPipeline;
+import com.example.ecoscan.core.LabelMap;
+import com.example.ecoscan.core.NmsEngine;
+import com.example.ecoscan.core.PixelSource;
+import com.example.ecoscan.core.TensorFormat;
+import com.example.ecoscan.core.TensorPreprocessor;
+import com.example.ecoscan.core.YoloDecoder;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Detector compartilhado pelo processo: um único Interpreter (atrás de um
+ * {@link TfliteBackend}) para o modelo escolhido no {@link ModelRegistry}, tabela de labels,
+ * pré-processamento e {@link DetectionPipeline}, emprestados pelos fragments via
+ * {@link #acquireAsync} e devolvidos com {@link #release()}. O carregamento roda na thread
+ * de inferência, começando já no {@link EcoScanApplication}.
+ *
+ * <p>Ao trocar de modelo ({@link #select}) o engine atual deixa de ser emprestado e fecha
+ * quando o último fragment o devolver; os próximos {@link #acquireAsync} carregam o novo.
+ */
+final class DetectorEngine {
+
+    private static final String TAG = "EcoScanEngine";
+
+    // Ao trocar de aba o fragment antigo é destruído antes do novo adquirir o engine;
+    // o fechamento é adiado para não recarregar o modelo nessa janela.
+    private static final long IDLE_CLOSE_DELAY_MS = 5000;
+    private static final long DECODE_WORKER_KEEP_ALIVE_S = 10;
+    private static final long CALIBRATION_DELAY_MS = 10_000;
+    /** Imagens por {@link #runBatch}; o Interpreter de lote é alocado uma vez com este tamanho. */
+    static final int BATCH_SIZE = 4;
+    private static final String CASCADE_PREFS = "ecoscan_cascade";
+    private static final String KEY_CASCADE_ENABLED = "enabled";
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Runnable closeIfIdle = DetectorEngine::closeIfIdle;
+
+    private static DetectorEngine instance;
+    /** Muda a cada {@link #select}; um carregamento que começou antes é descartado. */
+    private static int selection;
+
+    private final Context context;
+    private final ModelRegistry.Model modelInfo;
+    /** Fragments com o engine emprestado; protegido por {@code DetectorEngine.class}. */
+    private int refCount;
+    private final MappedByteBuffer model;
+    private final TfliteBackend backend;
+    private volatile InterpreterConfig interpreterConfig;
+    private final LabelMap labels;
+    private final DisposalRules disposalRules;
+    private final int[] inputShape;
+    private final int inputWidth;
+    private final int inputHeight;
+    private final int outputNumClasses;
+    private final int outputNumProposals;
+    private final TensorFormat inputFormat;
+    private final TensorFormat outputFormat;
+    private final TensorPreprocessor preprocessor;
+    private final DetectionPipeline pipeline;
+    private final ThreadPoolExecutor decodeWorkers;
+    private final long modelFingerprint;
+    private final boolean needsCalibration;
+    // Só na thread de inferência, como close() e calibrate().
+    private boolean closed;
+    // Interpreter próprio, alocado uma vez em [BATCH_SIZE, H, W, 3], para que os lotes não
+    // redimensionem o que as outras telas usam. Criado no primeiro lote; só na thread de
+    // inferência. Desliga se o modelo recusar o redimensionamento.
+    private Interpreter batchInterpreter;
+    private boolean batchingSupported = true;
+    private final CascadePolicy cascade = new CascadePolicy();
+    // Segundo Interpreter, alocado uma vez em baixa resolução: alternar entre as duas não
+    // realoca tensores. Criado no primeiro uso; só na thread de inferência.
+    private Interpreter lowResInterpreter;
+    private TensorPreprocessor lowResPreprocessor;
+    private DetectionPipeline lowResPipeline;
+    private boolean lowResSupported = true;
+
+    private DetectorEngine(Context context, ModelRegistry.Model modelInfo, boolean calibrateIfNeeded) throws IOException {
+        this.context = context;
+        this.modelInfo = modelInfo;
+        labels = LabelMap.read(modelInfo.openLabels(context));
+        disposalRules = loadDisposalRules(context, labels.asList());
+
+        model = modelInfo.map(context);
+        modelFingerprint = fingerprint(model, labels.asList());
+        InterpreterConfig saved = InterpreterAutotuner.loadSaved(context, modelFingerprint);
+        interpreterConfig = saved != null ? saved : InterpreterConfig.defaults();
+        Interpreter interpreter = new Interpreter(model, interpreterConfig.toOptions());
+        backend = new TfliteBackend(interpreter);
+        inputShape = interpreter.getInputTensor(0).shape();
+        inputWidth = inputShape[1];
+        inputHeight = inputShape[2];
+        int[] outputShape = interpreter.getOutputTensor(0).shape();
+        outputNumClasses = outputShape[1] - 4;
+        outputNumProposals = outputShape[2];
+        // Sem parâmetros de quantização, uint8 na entrada é o pixel cru (escala 1/255) e na saída o valor direto.
+        inputFormat = formatOf(interpreter.getInputTensor(0), 1f / 255f);
+        outputFormat = formatOf(interpreter.getOutputTensor(0), 1f);
+
+        preprocessor = new TensorPreprocessor(inputWidth, inputHeight, inputFormat);
+        YoloDecoder decoder = new YoloDecoder(outputNumClasses, outputNumProposals, outputFormat);
+        pipeline = new DetectionPipeline(decoder, new NmsEngine(outputNumProposals), labels);
+        decodeWorkers = newDecodeWorkers();
+        decoder.setParallelism(decodeWorkers, interpreterConfig.numThreads);
+
+        // Primeira execução com este modelo neste aparelho; agendada só depois de publicado.
+        needsCalibration = saved == null && calibrateIfNeeded;
+    }
+
+    /**
+     * Calibração automática, alguns segundos depois de o engine ficar disponível: ela ocupa a
+     * thread de inferência por vários segundos e não deve atrasar a primeira análise. Se o
+     * engine for fechado antes, não roda.
+     */
+    private void scheduleCalibration() {
+        if (!needsCalibration) return;
+        mainHandler.postDelayed(() -> InferenceExecutor.get().execute(() -> {
+            if (closed) return;
+            try {
+                calibrate();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Falha na calibração; mantendo " + interpreterConfig + ".", e);
+            }
+        }), CALIBRATION_DELAY_MS);
+    }
+
+    /**
+     * Carrega o modelo escolhido se ainda não estiver carregado, sem emprestá-lo: se ninguém
+     * adquirir em {@link #IDLE_CLOSE_DELAY_MS}, ele é fechado. Só na thread do
+     * {@link InferenceExecutor}, que é a única a criar o engine compartilhado; o lock não
+     * fica preso durante o carregamento, para não travar a main thread em {@link #release()}.
+     */
+    static DetectorEngine preload(Context context) throws IOException {
+        Context appContext = context.getApplicationContext();
+        while (true) {
+            int startedAt;
+            synchronized (DetectorEngine.class) {
+                if (instance != null) {
+                    scheduleCloseIfUnused(instance);
+                    return instance;
+                }
+                startedAt = selection;
+            }
+            DetectorEngine loaded = new DetectorEngine(appContext, ModelRegistry.selected(appContext), true);
+            synchronized (DetectorEngine.class) {
+                if (selection == startedAt) {
+                    Log.d(TAG, "Modelo " + loaded.modelInfo.name + " carregado: entrada " + loaded.inputFormat
+                            + ", saída " + loaded.outputFormat + ".");
+                    instance = loaded;
+                    scheduleCloseIfUnused(loaded);
+                    loaded.scheduleCalibration();
+                    return loaded;
+                }
+            }
+            // Trocaram de modelo durante o carregamento.
+            loaded.close();
+        }
+    }
+
+    private static void scheduleCloseIfUnused(DetectorEngine engine) {
+        if (engine.refCount == 0) {
+            mainHandler.removeCallbacks(closeIfIdle);
+            mainHandler.postDelayed(closeIfIdle, IDLE_CLOSE_DELAY_MS);
+        }
+    }
+
+    /**
+     * Engine avulso, fora do compartilhamento e sem calibração automática (usa a calibração
+     * salva ou o padrão), para comparar modelos. Só na thread do {@link InferenceExecutor};
+     * quem abre fecha com {@link #close()}.
+     */
+    static DetectorEngine open(Context context, ModelRegistry.Model model) throws IOException {
+        return new DetectorEngine(context.getApplicationContext(), model, false);
+    }
+
+    /**
+     * Salva {@code model} como o modelo do app. O engine atual, se for de outro modelo, deixa de
+     * ser emprestado e fecha assim que ninguém mais o usar.
+     */
+    static synchronized void select(Context context, ModelRegistry.Model model) {
+        ModelRegistry.select(context, model);
+        selection++;
+        if (instance == null || instance.modelInfo.id.equals(model.id)) return;
+        DetectorEngine retired = instance;
+        instance = null;
+        mainHandler.removeCallbacks(closeIfIdle);
+        if (retired.refCount == 0) retired.closeLater();
+    }
+
+    /**
+     * Carrega o engine na fila de inferência e o entrega já adquirido na main thread. Se a
+     * tarefa for cancelada antes, nada fica emprestado.
+     */
+    static InferenceExecutor.Task acquireAsync(Context context, InferenceExecutor.Callback<DetectorEngine> callback) {
+        Context appContext = context.getApplicationContext();
+        return InferenceExecutor.get().submit(() -> preload(appContext), new InferenceExecutor.Callback<DetectorEngine>() {
+            @Override
+            public void onResult(DetectorEngine engine, InferenceExecutor.Timing timing) {
+                if (retain(engine)) {
+                    callback.onResult(engine, timing);
+                } else {
+                    callback.onError(new IOException("O modelo foi liberado antes de ser adquirido."));
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                callback.onError(e);
+            }
+        });
+    }
+
+    private static synchronized boolean retain(DetectorEngine engine) {
+        if (instance != engine) return false;
+        mainHandler.removeCallbacks(closeIfIdle);
+        engine.refCount++;
+        return true;
+    }
+
+    void release() {
+        synchronized (DetectorEngine.class) {
+            if (refCount == 0) return;
+            refCount--;
+            if (refCount > 0) return;
+            if (instance == this) {
+                mainHandler.postDelayed(closeIfIdle, IDLE_CLOSE_DELAY_MS);
+            } else {
+                // Substituído por outro modelo: não volta a ser emprestado.
+                closeLater();
+            }
+        }
+    }
+
+    private static synchronized void closeIfIdle() {
+        if (instance != null && instance.refCount == 0) {
+            DetectorEngine idle = instance;
+            instance = null;
+            idle.closeLater();
+        }
+    }
+
+    // Na thread de inferência, para não concorrer com uma detecção em andamento
+    // (nem com uma calibração, que pode trocar o Interpreter).
+    private void closeLater() {
+        InferenceExecutor.get().execute(() -> {
+            close();
+            Log.d(TAG, "Modelo " + modelInfo.name + " liberado.");
+        });
+    }
+
+    /** Só na thread do {@link InferenceExecutor}. */
+    void close() {
+        closed = true;
+        backend.close();
+        closeLowRes();
+        closeBatch();
+        decodeWorkers.shutdown();
+    }
+
+    /**
+     * Mede as configurações candidatas, troca o Interpreter pela mais rápida e salva a
+     * escolha. Só na thread do {@link InferenceExecutor}.
+     */
+    InterpreterAutotuner.Result calibrate() {
+        if (closed) throw new IllegalStateException("Modelo " + modelInfo.name + " já foi liberado.");
+        InterpreterAutotuner.Result result = InterpreterAutotuner.calibrate(model, getImageInputBytes(), getImageOutputBytes());
+        InterpreterConfig best = result.best;
+        if (!best.encode().equals(interpreterConfig.encode())) {
+            backend.replace(new Interpreter(model, best.toOptions()));
+            interpreterConfig = best;
+            pipeline.getDecoder().setParallelism(decodeWorkers, best.numThreads);
+            // Recriados com a nova configuração no próximo uso.
+            closeLowRes();
+            closeBatch();
+        }
+        InterpreterAutotuner.save(context, modelFingerprint, result);
+        return result;
+    }
+
+    /**
+     * Ajudantes do {@link YoloDecoder}. A decodificação roda com o Interpreter parado, então
+     * ela usa o mesmo número de threads dele ({@link InterpreterConfig#numThreads}, contando
+     * a de inferência); as threads somem depois de um tempo ociosas.
+     */
+    private static ThreadPoolExecutor newDecodeWorkers() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                DECODE_WORKER_KEEP_ALIVE_S, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "EcoScan-Decode");
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Uma inferência descartada com entrada zerada, para o Interpreter alocar os tensores e
+     * inicializar os kernels antes da primeira foto. Só na thread do {@link InferenceExecutor}.
+     */
+    void warmUp() {
+        ByteBuffer input = ByteBuffer.allocateDirect(getImageInputBytes()).order(ByteOrder.nativeOrder());
+        long start = SystemClock.elapsedRealtime();
+        backend.run(input, pipeline.getDecoder().getOutputBuffer());
+        Log.d(TAG, "Aquecimento: " + (SystemClock.elapsedRealtime() - start) + " ms.");
+    }
+
+    /** Modelos só com pesos em FP16 mantêm entrada e saída float32 e caem no caminho float. */
+    private static TensorFormat formatOf(Tensor tensor, float defaultScale) throws IOException {
+        DataType dataType = tensor.dataType();
+        if (dataType == DataType.FLOAT32) return TensorFormat.FLOAT32;
+        TensorFormat.Type type;
+        if (dataType == DataType.UINT8) {
+            type = TensorFormat.Type.UINT8;
+        } else if (dataType == DataType.INT8) {
+            type = TensorFormat.Type.INT8;
+        } else {
+            throw new IOException("Tipo de tensor não suportado: " + dataType);
+        }
+        Tensor.QuantizationParams params = tensor.quantizationParams();
+        float scale = params.getScale() > 0f ? params.getScale() : defaultScale;
+        int zeroPoint = params.getScale() > 0f ? params.getZeroPoint() : 0;
+        return new TensorFormat(type, scale, zeroPoint);
+    }
+
+    /** Um arquivo em files/ (ex.: regras de outra cidade) tem prioridade sobre o do APK. */
+    private static DisposalRules loadDisposalRules(Context context, List<String> labels) throws IOException {
+        File override = new File(context.getFilesDir(), DisposalRules.ASSET_FILE);
+        if (override.isFile()) {
+            try (InputStream in = new FileInputStream(override)) {
+                return DisposalRules.compile(in, labels);
+            } catch (IOException e) {
+                Log.w(TAG, "Regras de descarte locais inválidas; usando as do app.", e);
+            }
+        }
+        DisposalRules rules = DisposalRules.compile(context.getAssets().open(DisposalRules.ASSET_FILE), labels);
+        if (rules.getUnmatchedLabels() > 0) {
+            Log.w(TAG, rules.getUnmatchedLabels() + " labels sem regra de descarte; usando a regra padrão.");
+        }
+        return rules;
+    }
+
+    private static long fingerprint(MappedByteBuffer model, List<String> labels) {
+        CRC32 crc = new CRC32();
+        crc.update(model.duplicate());
+        for (String label : labels) {
+            crc.update(label.getBytes(StandardCharsets.UTF_8));
+            crc.update('\n');
+        }
+        return (crc.getValue() << 32) | model.capacity();
+    }
+
+    /**
+     * Inferência e pós-processamento sobre uma entrada já preparada, medidos como etapas
+     * separadas no {@link StageMetrics}. Só na thread do {@link InferenceExecutor}.
+     */
+    List<Detection> detect(ByteBuffer input, float threshold, float coordDivisor) {
+        StageMetrics.begin(Stage.INFERENCE);
+        backend.run(input, pipeline.getDecoder().getOutputBuffer());
+        StageMetrics.end(Stage.INFERENCE);
+        StageMetrics.begin(Stage.POSTPROCESS);
+        List<Detection> detections = pipeline.postProcess(threshold, coordDivisor);
+        StageMetrics.end(Stage.POSTPROCESS);
+        return detections;
+    }
+
+    /**
+     * Pré-processa e detecta. Com a cascata ligada ({@link #setCascadeEnabled}), roda primeiro em
+     * baixa resolução (metade de cada lado) e só repete na resolução cheia quando o
+     * {@link CascadePolicy} pede; sem suporte do modelo a outro tamanho de entrada, vai direto
+     * para a cheia. Só na thread do {@link InferenceExecutor}.
+     */
+    List<Detection> detectAdaptive(PixelSource pixels, float threshold, float coordDivisor) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        if (!isCascadeEnabled(context) || !ensureLowRes()) {
+            List<Detection> detections = detectFull(pixels, threshold, coordDivisor);
+            cascade.recordFullRun((SystemClock.elapsedRealtimeNanos() - start) / 1_000_000f);
+            return detections;
+        }
+
+        StageMetrics.begin(Stage.PREPROCESS_LOW_RES);
+        ByteBuffer input = lowResPreprocessor.process(pixels);
+        StageMetrics.end(Stage.PREPROCESS_LOW_RES);
+        StageMetrics.begin(Stage.INFERENCE_LOW_RES);
+        lowResInterpreter.run(input, lowResPipeline.getDecoder().getOutputBuffer());
+        StageMetrics.end(Stage.INFERENCE_LOW_RES);
+        StageMetrics.begin(Stage.POSTPROCESS_LOW_RES);
+        // Coordenadas em pixels da entrada encolhem junto; normalizadas (divisor 1) não mudam.
+        float lowResDivisor = coordDivisor > 1f ? coordDivisor * lowResPreprocessor.getWidth() / inputWidth : coordDivisor;
+        List<Detection> detections = lowResPipeline.postProcess(threshold, lowResDivisor);
+        StageMetrics.end(Stage.POSTPROCESS_LOW_RES);
+        long lowResEnd = SystemClock.elapsedRealtimeNanos();
+        float lowMs = (lowResEnd - start) / 1_000_000f;
+        if (!cascade.shouldEscalate(detections)) {
+            cascade.record(lowMs, -1f);
+            return detections;
+        }
+
+        detections = detectFull(pixels, threshold, coordDivisor);
+        cascade.record(lowMs, (SystemClock.elapsedRealtimeNanos() - lowResEnd) / 1_000_000f);
+        return detections;
+    }
+
+    private List<Detection> detectFull(PixelSource pixels, float threshold, float coordDivisor) {
+        StageMetrics.begin(Stage.PREPROCESS);
+        ByteBuffer input = preprocessor.process(pixels);
+        StageMetrics.end(Stage.PREPROCESS);
+        return detect(input, threshold, coordDivisor);
+    }
+
+    /** {@code false} se o modelo não aceita outro tamanho de entrada; aí a cascata fica desligada. */
+    private boolean ensureLowRes() {
+        if (lowResInterpreter != null) return true;
+        if (!lowResSupported) return false;
+        int[] shape = inputShape.clone();
+        shape[1] = lowResSide(inputWidth);
+        shape[2] = lowResSide(inputHeight);
+        Interpreter interpreter = new Interpreter(model, interpreterConfig.toOptions());
+        try {
+            interpreter.resizeInput(0, shape);
+            interpreter.allocateTensors();
+            int[] outputShape = interpreter.getOutputTensor(0).shape();
+            if (outputShape[1] != 4 + outputNumClasses) {
+                throw new IllegalStateException("Saída inesperada em baixa resolução: " + outputShape[1] + " linhas.");
+            }
+            int numProposals = outputShape[2];
+            YoloDecoder decoder = new YoloDecoder(outputNumClasses, numProposals, outputFormat);
+            decoder.setParallelism(decodeWorkers, interpreterConfig.numThreads);
+            lowResPipeline = new DetectionPipeline(decoder, new NmsEngine(numProposals), labels);
+            lowResPreprocessor = new TensorPreprocessor(shape[1], shape[2], inputFormat);
+            lowResInterpreter = interpreter;
+            Log.d(TAG, "Cascata: entrada " + shape[1] + "x" + shape[2] + ", " + numProposals + " propostas.");
+            return true;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Log.w(TAG, "Modelo não aceita entrada menor; cascata desligada para " + modelInfo.name + ".", e);
+            interpreter.close();
+            lowResSupported = false;
+            return false;
+        }
+    }
+
+    // Metade, arredondada para o passo de 32 px das saídas do YOLO.
+    private static int lowResSide(int side) {
+        return Math.max(32, side / 2 / 32 * 32);
+    }
+
+    private void closeLowRes() {
+        if (lowResInterpreter == null) return;
+        lowResInterpreter.close();
+        lowResInterpreter = null;
+        lowResPipeline = null;
+        lowResPreprocessor = null;
+    }
+
+    static boolean isCascadeEnabled(Context context) {
+        return context.getSharedPreferences(CASCADE_PREFS, Context.MODE_PRIVATE).getBoolean(KEY_CASCADE_ENABLED, false);
+    }
+
+    static void setCascadeEnabled(Context context, boolean enabled) {
+        context.getSharedPreferences(CASCADE_PREFS, Context.MODE_PRIVATE).edit().putBoolean(KEY_CASCADE_ENABLED, enabled).apply();
+    }
+
+    /** Quantas análises escalaram para a resolução cheia e quanto tempo a cascata poupou. */
+    CascadePolicy getCascade() {
+        return cascade;
+    }
+
+    /**
+     * Roda as {@code count} primeiras imagens de {@code batchInput} (cada uma com
+     * {@link #getImageInputBytes()}). Um lote cheio de {@link #BATCH_SIZE} vai num único
+     * {@code run} do Interpreter de lote; um lote menor (o último de uma lista) ou um modelo
+     * que não aceita lote roda uma imagem por vez no Interpreter normal, sem mudar o shape de
+     * nenhum dos dois. A saída de cada imagem fica na sua fatia de {@code batchOutput}. Só na
+     * thread do {@link InferenceExecutor}.
+     */
+    void runBatch(ByteBuffer batchInput, ByteBuffer batchOutput, int count) {
+        int imageInputBytes = getImageInputBytes();
+        int imageOutputBytes = getImageOutputBytes();
+        if (count == BATCH_SIZE && ensureBatch()) {
+            batchInterpreter.run(view(batchInput, 0, count * imageInputBytes), view(batchOutput, 0, count * imageOutputBytes));
+            return;
+        }
+        Interpreter interpreter = backend.getInterpreter();
+        for (int i = 0; i < count; i++) {
+            interpreter.run(view(batchInput, i * imageInputBytes, imageInputBytes),
+                    view(batchOutput, i * imageOutputBytes, imageOutputBytes));
+        }
+    }
+
+    /** {@code false} se o modelo não aceita entrada em lote; aí {@link #runBatch} vai uma por vez. */
+    private boolean ensureBatch() {
+        if (batchInterpreter != null) return true;
+        if (!batchingSupported) return false;
+        int[] shape = getInputShape();
+        shape[0] = BATCH_SIZE;
+        Interpreter interpreter = new Interpreter(model, interpreterConfig.toOptions());
+        try {
+            interpreter.resizeInput(0, shape);
+            interpreter.allocateTensors();
+            int[] outputShape = interpreter.getOutputTensor(0).shape();
+            if (outputShape[0] != BATCH_SIZE || outputShape[1] != 4 + outputNumClasses || outputShape[2] != outputNumProposals) {
+                throw new IllegalStateException("Saída inesperada em lote: " + Arrays.toString(outputShape) + ".");
+            }
+            batchInterpreter = interpreter;
+            return true;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Log.w(TAG, "Modelo não aceita entrada em lote; seguindo uma imagem por vez.", e);
+            interpreter.close();
+            batchingSupported = false;
+            return false;
+        }
+    }
+
+    private void closeBatch() {
+        if (batchInterpreter == null) return;
+        batchInterpreter.close();
+        batchInterpreter = null;
+    }
+
+    /** Fatia com capacidade exata: o Interpreter compara a capacidade do buffer com o tamanho do tensor. */
+    static ByteBuffer view(ByteBuffer buffer, int offsetBytes, int lengthBytes) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offsetBytes);
+        view.limit(offsetBytes + lengthBytes);
+        return view.slice().order(ByteOrder.nativeOrder());
+    }
+
+    /** Bytes de uma imagem na entrada do modelo. */
+    int getImageInputBytes() {
+        return inputWidth * inputHeight * 3 * inputFormat.bytesPerElement();
+    }
+
+    /** Elementos de uma imagem na saída, [4 + C][N]; é o offset entre imagens de um lote. */
+    int getImageOutputElements() {
+        return (4 + outputNumClasses) * outputNumProposals;
+    }
+
+    int getImageOutputBytes() {
+        return getImageOutputElements() * outputFormat.bytesPerElement();
+    }
+
+    /** Só na thread do {@link InferenceExecutor}; muda depois de uma calibração. */
+    Interpreter getInterpreter() {
+        return backend.getInterpreter();
+    }
+
+    /** Mesma restrição de thread do {@link #getPipeline()}. */
+    TfliteBackend getBackend() {
+        return backend;
+    }
+
+    List<String> getLabels() {
+        return labels.asList();
+    }
+
+    LabelMap getLabelMap() {
+        return labels;
+    }
+
+    /** Regras já alinhadas com os índices de classe do modelo. */
+    DisposalRules getDisposalRules() {
+        return disposalRules;
+    }
+
+    /** Cópia do shape de entrada [1, H, W, 3]. */
+    int[] getInputShape() {
+        return inputShape.clone();
+    }
+
+    int getInputWidth() {
+        return inputWidth;
+    }
+
+    int getInputHeight() {
+        return inputHeight;
+    }
+
+    /**
+     * Divisor que leva as caixas da saída (em pixels da entrada do modelo) para frações da
+     * imagem, como o overlay espera; muda com o modelo escolhido no {@link ModelRegistry}.
+     */
+    float getCoordDivisor() {
+        return inputWidth;
+    }
+
+    int getOutputNumClasses() {
+        return outputNumClasses;
+    }
+
+    int getOutputNumProposals() {
+        return outputNumProposals;
+    }
+
+    TensorFormat getInputFormat() {
+        return inputFormat;
+    }
+
+    TensorFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    InterpreterConfig getInterpreterConfig() {
+        return interpreterConfig;
+    }
+
+    /** Tempos da última calibração salva, um por linha. */
+    String getCalibrationReport() {
+        return InterpreterAutotuner.loadReport(context, modelFingerprint);
+    }
+
+    ModelRegistry.Model getModelInfo() {
+        return modelInfo;
+    }
+
+    /** Muda sempre que o arquivo do modelo ou a lista de labels mudar. */
+    long getModelFingerprint() {
+        return modelFingerprint;
+    }
+
+    /** Mesma restrição de thread do {@link #getPipeline()}. */
+    TensorPreprocessor getPreprocessor() {
+        return preprocessor;
+    }
+
+    /** Decoder, NMS e labels reutilizáveis; só devem ser usados na thread do {@link InferenceExecutor}. */
+    DetectionPipeline getPipeline() {
+        return pipeline;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.ecoscan;
+
+/** Onde descartar uma classe: nomes exibidos e a cor (ARGB) da lixeira. */
+final class DisposalRule {
+
+    final String objectName;
+    final String binName;
+    final String binDescription;
+    final int binColor;
+
+    DisposalRule(String objectName, String binName, String binDescription, int binColor) {
+        this.objectName = objectName;
+        this.binName = binName;
+        this.binDescription = binDescription;
+        this.binColor = binColor;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.ecoscan;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Regras de descarte lidas de um arquivo texto e compiladas uma vez contra a lista de
+ * labels do modelo, num array indexado pelo índice da classe. A consulta é só uma leitura
+ * de array, e um modelo com outras classes (ou outra cidade, com outras cores de lixeira)
+ * só precisa de outro arquivo.
+ *
+ * <p>Formato: uma regra por linha, {@code label;objeto;lixeira;tipo;#RRGGBB}; linhas em
+ * branco ou começando com {@code #} são ignoradas e a label {@code *} é a regra padrão.
+ */
+final class DisposalRules {
+
+    static final String ASSET_FILE = "disposal_rules.txt";
+    private static final String FALLBACK_LABEL = "*";
+    private static final DisposalRule BUILT_IN_FALLBACK =
+            new DisposalRule("Desconhecido", "Lixeira Cinza", "Lixo Comum / Não Reciclável", 0xFF616161);
+
+    private final DisposalRule[] byClass;
+    private final DisposalRule fallback;
+    private final int unmatchedLabels;
+
+    private DisposalRules(DisposalRule[] byClass, DisposalRule fallback, int unmatchedLabels) {
+        this.byClass = byClass;
+        this.fallback = fallback;
+        this.unmatchedLabels = unmatchedLabels;
+    }
+
+    /** Lê as regras e as alinha com {@code labels} (comparação sem diferenciar maiúsculas). */
+    static DisposalRules compile(InputStream in, List<String> labels) throws IOException {
+        Map<String, DisposalRule> rules = parse(in);
+        DisposalRule fallback = rules.containsKey(FALLBACK_LABEL) ? rules.get(FALLBACK_LABEL) : BUILT_IN_FALLBACK;
+        DisposalRule[] byClass = new DisposalRule[labels.size()];
+        int unmatched = 0;
+        for (int i = 0; i < byClass.length; i++) {
+            DisposalRule rule = rules.get(labels.get(i).trim().toLowerCase(Locale.ROOT));
+            if (rule == null) unmatched++;
+            byClass[i] = rule != null ? rule : fallback;
+        }
+        return new DisposalRules(byClass, fallback, unmatched);
+    }
+
+    private static Map<String, DisposalRule> parse(InputStream in) throws IOException {
+        Map<String, DisposalRule> rules = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] fields = line.split(";", -1);
+                if (fields.length != 5) {
+                    throw new IOException("Regra de descarte inválida na linha " + lineNumber + ": " + line);
+                }
+                rules.put(fields[0].trim().toLowerCase(Locale.ROOT), new DisposalRule(fields[1].trim(),
+                        fields[2].trim(), fields[3].trim(), parseColor(fields[4].trim(), lineNumber)));
+            }
+        }
+        return rules;
+    }
+
+    /** {@code #RRGGBB} ou {@code #AARRGGBB}, como em {@code Color.parseColor}. */
+    private static int parseColor(String value, int lineNumber) throws IOException {
+        if (value.startsWith("#") && (value.length() == 7 || value.length() == 9)) {
+            try {
+                long color = Long.parseLong(value.substring(1), 16);
+                return (int) (value.length() == 7 ? color | 0xFF000000L : color);
+            } catch (NumberFormatException ignored) {
+                // Cai no erro abaixo.
+            }
+        }
+        throw new IOException("Cor inválida na linha " + lineNumber + ": " + value);
+    }
+
+    /** Sem alocação; índices fora do modelo caem na regra padrão. */
+    DisposalRule forClass(int classIndex) {
+        return classIndex >= 0 && classIndex < byClass.length ? byClass[classIndex] : fallback;
+    }
+
+    DisposalRule getFallback() {
+        return fallback;
+    }
+
+    /** Labels do modelo sem regra própria, que usam a padrão. */
+    int getUnmatchedLabels() {
+        return unmatchedLabels;
+    }
+}
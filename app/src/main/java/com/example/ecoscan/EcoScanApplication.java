@@ -0,0 +1,51 @@
+package com.example.ecoscan;
+
+import android.app.Application;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Começa a carregar e aquecer o {@link DetectorEngine} assim que o processo sobe, em paralelo
+ * com a criação da activity, e mede o tempo do início do processo até o primeiro resultado.
+ * Também limpa as imagens antigas do cache ({@link CacheJanitor}).
+ */
+public class EcoScanApplication extends Application {
+
+    private static final String TAG = "EcoScanStartup";
+
+    private static long engineReadyMs = -1;
+    private static boolean firstResultLogged;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        CacheJanitor.trimAsync(this);
+        InferenceExecutor.get().execute(() -> {
+            try {
+                DetectorEngine.preload(this).warmUp();
+                markEngineReady();
+            } catch (Exception e) {
+                // Os fragments tentam de novo e mostram o erro.
+                Log.e(TAG, "Falha ao pré-carregar o modelo.", e);
+            }
+        });
+    }
+
+    private static synchronized void markEngineReady() {
+        engineReadyMs = sinceProcessStartMs();
+        Log.d(TAG, "Modelo pronto " + engineReadyMs + " ms após o início do processo.");
+    }
+
+    /** Registra no log, uma vez por processo, quanto tempo levou até o primeiro resultado. */
+    static synchronized void markFirstResult(String source) {
+        if (firstResultLogged) return;
+        firstResultLogged = true;
+        Log.i(TAG, "Primeiro resultado (" + source + ") " + sinceProcessStartMs() + " ms após o início do processo"
+                + (engineReadyMs >= 0 ? "; modelo pronto em " + engineReadyMs + " ms." : "."));
+    }
+
+    private static long sinceProcessStartMs() {
+        return SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+    }
+}
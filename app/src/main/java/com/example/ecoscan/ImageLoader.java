@@ -0,0 +1,168 @@
+package com.example.ecoscan;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.ImageDecoder;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.util.Size;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodifica fotos já no tamanho de uso: uma versão para inferência, só o bastante para
+ * cobrir a entrada do modelo, e outra limitada para exibição. A foto em resolução cheia
+ * nunca é materializada.
+ *
+ * <p>A versão de inferência usa BitmapFactory, e não ImageDecoder, porque só ele decodifica
+ * dentro de um bitmap do {@link BitmapPool} ({@code inBitmap}). Em troca, a rotação EXIF não
+ * é aplicada nos pixels: ela volta junto e é resolvida na leitura, por {@link BitmapPixelSource}.
+ *
+ * <p>Fotos da CameraX chegam como JPEG em memória e são decodificadas do array, sem passar
+ * pelo disco.
+ */
+final class ImageLoader {
+
+    static final int DISPLAY_MAX_SIDE = 1280;
+
+    /** Bitmap de inferência (do pool) e a rotação, em graus horários, para deixá-lo em pé. */
+    static final class InferenceImage {
+        final Bitmap bitmap;
+        final int rotationDegrees;
+
+        InferenceImage(Bitmap bitmap, int rotationDegrees) {
+            this.bitmap = bitmap;
+            this.rotationDegrees = rotationDegrees;
+        }
+
+        BitmapPixelSource pixels() {
+            return new BitmapPixelSource(bitmap, rotationDegrees);
+        }
+    }
+
+    private interface EncodedSource {
+        Bitmap decode(BitmapFactory.Options options) throws IOException;
+    }
+
+    private ImageLoader() {
+    }
+
+    /**
+     * Maior redução por potência de 2 em que os dois lados ainda cobrem a entrada do modelo.
+     * O bitmap deve voltar ao {@code pool} quando não for mais usado.
+     */
+    static InferenceImage decodeForInference(ContentResolver resolver, Uri uri, int inputWidth, int inputHeight,
+                                             BitmapPool pool) throws IOException {
+        return decodeForInference(options -> decode(resolver, uri, options), uri.toString(),
+                readRotation(resolver, uri), inputWidth, inputHeight, pool);
+    }
+
+    /** Igual, para um JPEG em memória; {@code rotation} vem da câmera, não do EXIF. */
+    static InferenceImage decodeForInference(byte[] jpeg, int rotation, int inputWidth, int inputHeight,
+                                             BitmapPool pool) throws IOException {
+        return decodeForInference(options -> BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, options),
+                "captura da câmera", rotation, inputWidth, inputHeight, pool);
+    }
+
+    private static InferenceImage decodeForInference(EncodedSource source, String name, int rotation, int inputWidth,
+                                                     int inputHeight, BitmapPool pool) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        source.decode(options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Formato de imagem não suportado: " + name);
+        }
+
+        // Deitada, a largura da foto é que precisa cobrir a altura da entrada.
+        boolean sideways = rotation % 180 != 0;
+        int coverWidth = sideways ? inputHeight : inputWidth;
+        int coverHeight = sideways ? inputWidth : inputHeight;
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= coverWidth && options.outHeight / (sampleSize * 2) >= coverHeight) {
+            sampleSize *= 2;
+        }
+        int width = (options.outWidth + sampleSize - 1) / sampleSize;
+        int height = (options.outHeight + sampleSize - 1) / sampleSize;
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inBitmap = pool.acquire(width * height * 4);
+        Bitmap bitmap;
+        try {
+            bitmap = source.decode(options);
+        } catch (IllegalArgumentException e) {
+            // O decoder recusou o bitmap reaproveitado; tenta de novo alocando.
+            pool.release(options.inBitmap);
+            options.inBitmap = null;
+            bitmap = source.decode(options);
+        }
+        if (bitmap == null) {
+            pool.release(options.inBitmap);
+            throw new IOException("Não foi possível decodificar " + name);
+        }
+        return new InferenceImage(bitmap, rotation);
+    }
+
+    static Bitmap decodeForDisplay(ContentResolver resolver, Uri uri, int maxSide) throws IOException {
+        ImageDecoder.Source source = ImageDecoder.createSource(resolver, uri);
+        return ImageDecoder.decodeBitmap(source, (decoder, info, s) -> {
+            Size size = info.getSize();
+            float factor = Math.max(size.getWidth(), size.getHeight()) / (float) maxSide;
+            if (factor > 1f) {
+                decoder.setTargetSize(Math.round(size.getWidth() / factor), Math.round(size.getHeight() / factor));
+            }
+        });
+    }
+
+    /** JPEG em memória, reduzido por potência de 2 até caber em {@code maxSide} e girado para ficar em pé. */
+    static Bitmap decodeForDisplay(byte[] jpeg, int rotation, int maxSide) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, options);
+        options.inSampleSize = 1;
+        while (Math.max(options.outWidth, options.outHeight) / options.inSampleSize > maxSide) {
+            options.inSampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        Bitmap bitmap = BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, options);
+        if (bitmap == null) throw new IOException("Não foi possível decodificar a captura da câmera.");
+        if (rotation == 0) return bitmap;
+        Matrix matrix = new Matrix();
+        matrix.postRotate(rotation);
+        Bitmap upright = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        bitmap.recycle();
+        return upright;
+    }
+
+    private static Bitmap decode(ContentResolver resolver, Uri uri, BitmapFactory.Options options) throws IOException {
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) throw new IOException("Sem acesso a " + uri);
+            return BitmapFactory.decodeStream(in, null, options);
+        }
+    }
+
+    /** Espelhamentos EXIF (raros em fotos de câmera) são tratados só pela rotação. */
+    static int readRotation(ContentResolver resolver, Uri uri) throws IOException {
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) throw new IOException("Sem acesso a " + uri);
+            switch (new ExifInterface(in).getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL)) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                case ExifInterface.ORIENTATION_TRANSPOSE:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                case ExifInterface.ORIENTATION_TRANSVERSE:
+                    return 270;
+                default:
+                    return 0;
+            }
+        }
+    }
+}
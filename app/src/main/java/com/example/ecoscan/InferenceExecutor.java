@@ -0,0 +1,103 @@
+package com.example.ecoscan;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Executor de thread única onde roda todo o trabalho do Interpreter. Os resultados
+ * voltam para a main thread pelo {@link Callback}; tarefas canceladas nunca entregam
+ * resultado.
+ */
+final class InferenceExecutor {
+
+    interface Job<T> {
+        T run() throws Exception;
+    }
+
+    interface Callback<T> {
+        void onResult(T result, Timing timing);
+
+        /** Erros ({@code OutOfMemoryError} numa foto enorme, por exemplo) chegam dentro de uma {@link ExecutionException}. */
+        void onError(Exception e);
+    }
+
+    static final class Timing {
+        final long queueWaitMs;
+        final long computeMs;
+
+        Timing(long queueWaitMs, long computeMs) {
+            this.queueWaitMs = queueWaitMs;
+            this.computeMs = computeMs;
+        }
+    }
+
+    static final class Task {
+        private volatile boolean cancelled;
+        private Future<?> future;
+
+        void cancel() {
+            cancelled = true;
+            if (future != null) {
+                // Sem interrupt: o Interpreter não é interrompível e a tarefa apenas descarta o resultado.
+                future.cancel(false);
+            }
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static InferenceExecutor instance;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "EcoScan-Inference");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private InferenceExecutor() {
+    }
+
+    static synchronized InferenceExecutor get() {
+        if (instance == null) {
+            instance = new InferenceExecutor();
+        }
+        return instance;
+    }
+
+    <T> Task submit(Job<T> job, Callback<T> callback) {
+        Task task = new Task();
+        long enqueuedAt = SystemClock.elapsedRealtime();
+        task.future = executor.submit(() -> {
+            if (task.isCancelled()) return;
+            long startedAt = SystemClock.elapsedRealtime();
+            try {
+                T result = job.run();
+                Timing timing = new Timing(startedAt - enqueuedAt, SystemClock.elapsedRealtime() - startedAt);
+                mainHandler.post(() -> {
+                    if (!task.isCancelled()) callback.onResult(result, timing);
+                });
+            } catch (Throwable t) {
+                // Um Error engolido pelo Future deixaria a tela esperando um callback que nunca vem.
+                Exception e = t instanceof Exception ? (Exception) t : new ExecutionException(t);
+                mainHandler.post(() -> {
+                    if (!task.isCancelled()) callback.onError(e);
+                });
+            }
+        });
+        return task;
+    }
+
+    /** Executa em ordem com as detecções, sem callback (ex.: fechar o Interpreter). */
+    void execute(Runnable runnable) {
+        executor.execute(runnable);
+    }
+}
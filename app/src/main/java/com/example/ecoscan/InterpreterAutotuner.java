@@ -0,0 +1,173 @@
+package com.example.ecoscan;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Calibra as opções do Interpreter no aparelho: mede a latência p50 de algumas
+ * configurações e fica com a mais rápida. A escolha é salva por aparelho e por modelo
+ * (fingerprint do {@link DetectorEngine}), então só é refeita quando um dos dois muda.
+ *
+ * <p>Em vez de testar todas as combinações, ajuda uma opção por vez: primeiro o número de
+ * threads (com XNNPACK), depois XNNPACK desligado e por fim FP16 relaxado sobre a melhor.
+ */
+final class InterpreterAutotuner {
+
+    static final class Measurement {
+        final InterpreterConfig config;
+        final float p50Ms;
+
+        Measurement(InterpreterConfig config, float p50Ms) {
+            this.config = config;
+            this.p50Ms = p50Ms;
+        }
+    }
+
+    static final class Result {
+        final InterpreterConfig best;
+        final List<Measurement> measurements;
+
+        Result(InterpreterConfig best, List<Measurement> measurements) {
+            this.best = best;
+            this.measurements = measurements;
+        }
+
+        String describe() {
+            StringBuilder text = new StringBuilder();
+            for (Measurement measurement : measurements) {
+                if (text.length() > 0) text.append('\n');
+                text.append(String.format(Locale.US, "%s: %.1f ms%s", measurement.config, measurement.p50Ms,
+                        measurement.config == best ? " ✓" : ""));
+            }
+            return text.toString();
+        }
+    }
+
+    private static final String TAG = "EcoScanAutotune";
+    private static final String PREFS_NAME = "ecoscan_autotune";
+    private static final String KEY_CONFIG = "config_";
+    private static final String KEY_REPORT = "report_";
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 5;
+
+    private InterpreterAutotuner() {
+    }
+
+    /** @return a configuração salva para este aparelho e modelo, ou {@code null} se ainda não calibrou */
+    static InterpreterConfig loadSaved(Context context, long modelFingerprint) {
+        return InterpreterConfig.decode(prefs(context).getString(KEY_CONFIG + key(modelFingerprint), null));
+    }
+
+    /** Tempos medidos na última calibração, um por linha; vazio se ainda não calibrou. */
+    static String loadReport(Context context, long modelFingerprint) {
+        return prefs(context).getString(KEY_REPORT + key(modelFingerprint), "");
+    }
+
+    static void save(Context context, long modelFingerprint, Result result) {
+        // Cada modelo do ModelRegistry guarda a sua; as de outro aparelho ou versão do sistema
+        // (backup restaurado, atualização) não servem mais e são apagadas.
+        SharedPreferences prefs = prefs(context);
+        SharedPreferences.Editor editor = prefs.edit();
+        String device = deviceSuffix();
+        for (String saved : prefs.getAll().keySet()) {
+            if (!saved.endsWith(device)) editor.remove(saved);
+        }
+        editor.putString(KEY_CONFIG + key(modelFingerprint), result.best.encode())
+                .putString(KEY_REPORT + key(modelFingerprint), result.describe())
+                .apply();
+    }
+
+    /** Bloqueia por alguns segundos; só na thread do {@link InferenceExecutor}. */
+    static Result calibrate(ByteBuffer model, int inputBytes, int outputBytes) {
+        ByteBuffer input = ByteBuffer.allocateDirect(inputBytes).order(ByteOrder.nativeOrder());
+        ByteBuffer output = ByteBuffer.allocateDirect(outputBytes).order(ByteOrder.nativeOrder());
+        List<Measurement> measurements = new ArrayList<>();
+
+        Measurement best = null;
+        for (int threads : threadCandidates()) {
+            best = faster(best, measure(model, new InterpreterConfig(threads, true, false), input, output, measurements));
+        }
+        InterpreterConfig base = best != null ? best.config : InterpreterConfig.defaults();
+        best = faster(best, measure(model, base.withXnnpack(false), input, output, measurements));
+        base = best != null ? best.config : base;
+        best = faster(best, measure(model, base.withFp16(true), input, output, measurements));
+
+        InterpreterConfig chosen = best != null ? best.config : InterpreterConfig.defaults();
+        Log.d(TAG, "Configuração escolhida: " + chosen);
+        return new Result(chosen, measurements);
+    }
+
+    private static int[] threadCandidates() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        TreeSet<Integer> candidates = new TreeSet<>();
+        for (int threads : new int[]{1, 2, 4, cores}) {
+            if (threads <= cores) candidates.add(threads);
+        }
+        int[] result = new int[candidates.size()];
+        int i = 0;
+        for (int threads : candidates) result[i++] = threads;
+        return result;
+    }
+
+    private static Measurement faster(Measurement current, Measurement candidate) {
+        if (candidate == null) return current;
+        return current == null || candidate.p50Ms < current.p50Ms ? candidate : current;
+    }
+
+    /** @return {@code null} se o Interpreter não aceitar a configuração */
+    private static Measurement measure(ByteBuffer model, InterpreterConfig config, ByteBuffer input, ByteBuffer output,
+                                       List<Measurement> measurements) {
+        float[] timesMs = new float[MEASURED_RUNS];
+        try (Interpreter interpreter = new Interpreter(model, config.toOptions())) {
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                run(interpreter, input, output);
+            }
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                long start = SystemClock.elapsedRealtimeNanos();
+                run(interpreter, input, output);
+                timesMs[i] = (SystemClock.elapsedRealtimeNanos() - start) / 1_000_000f;
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Configuração ignorada: " + config, e);
+            return null;
+        }
+        Arrays.sort(timesMs);
+        Measurement measurement = new Measurement(config, timesMs[MEASURED_RUNS / 2]);
+        measurements.add(measurement);
+        Log.d(TAG, String.format(Locale.US, "%s: p50 %.1f ms", config, measurement.p50Ms));
+        return measurement;
+    }
+
+    private static void run(Interpreter interpreter, ByteBuffer input, ByteBuffer output) {
+        input.rewind();
+        output.rewind();
+        interpreter.run(input, output);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    // Build.FINGERPRINT identifica aparelho e versão do sistema; um backup restaurado em outro
+    // aparelho não reaproveita a calibração.
+    private static String key(long modelFingerprint) {
+        return Long.toHexString(modelFingerprint) + deviceSuffix();
+    }
+
+    private static String deviceSuffix() {
+        return "_" + Integer.toHexString(Build.FINGERPRINT.hashCode());
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.ecoscan;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.util.Locale;
+
+/** Combinação de threads e opções do CPU usada para criar o {@link Interpreter}. */
+final class InterpreterConfig {
+
+    final int numThreads;
+    final boolean useXnnpack;
+    final boolean allowFp16;
+
+    InterpreterConfig(int numThreads, boolean useXnnpack, boolean allowFp16) {
+        this.numThreads = numThreads;
+        this.useXnnpack = useXnnpack;
+        this.allowFp16 = allowFp16;
+    }
+
+    /** Usada até a primeira calibração terminar. */
+    static InterpreterConfig defaults() {
+        return new InterpreterConfig(Math.min(4, Runtime.getRuntime().availableProcessors()), true, false);
+    }
+
+    Interpreter.Options toOptions() {
+        Interpreter.Options options = new Interpreter.Options();
+        options.setNumThreads(numThreads);
+        options.setUseXNNPACK(useXnnpack);
+        options.setAllowFp16PrecisionForFp32(allowFp16);
+        return options;
+    }
+
+    InterpreterConfig withThreads(int threads) {
+        return new InterpreterConfig(threads, useXnnpack, allowFp16);
+    }
+
+    InterpreterConfig withXnnpack(boolean enabled) {
+        return new InterpreterConfig(numThreads, enabled, allowFp16);
+    }
+
+    InterpreterConfig withFp16(boolean enabled) {
+        return new InterpreterConfig(numThreads, useXnnpack, enabled);
+    }
+
+    /** Formato compacto para SharedPreferences, lido de volta por {@link #decode(String)}. */
+    String encode() {
+        return numThreads + "," + (useXnnpack ? 1 : 0) + "," + (allowFp16 ? 1 : 0);
+    }
+
+    /** @return {@code null} se o valor salvo for inválido */
+    static InterpreterConfig decode(String value) {
+        if (value == null) return null;
+        String[] parts = value.split(",");
+        if (parts.length != 3) return null;
+        try {
+            int threads = Integer.parseInt(parts[0]);
+            if (threads < 1) return null;
+            return new InterpreterConfig(threads, "1".equals(parts[1]), "1".equals(parts[2]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%d thread%s, XNNPACK %s, %s", numThreads, numThreads > 1 ? "s" : "",
+                useXnnpack ? "ligado" : "desligado", allowFp16 ? "FP16 relaxado" : "FP32");
+    }
+}
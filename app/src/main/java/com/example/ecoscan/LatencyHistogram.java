@@ -0,0 +1,81 @@
+package com.example.ecoscan;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latência com baldes fixos em escala geométrica (50 µs a ~4 s, passo de 20%),
+ * então os percentis saem com erro de no máximo um balde. Registrar não aloca e pode ser
+ * feito de várias threads.
+ */
+final class LatencyHistogram {
+
+    private static final long FIRST_BOUND_NANOS = 50_000L;
+    private static final double GROWTH = 1.2;
+    private static final int BUCKETS = 64;
+    /** Limite superior (inclusive) de cada balde; o último balde extra recebe o que passar disso. */
+    private static final long[] BOUNDS = new long[BUCKETS];
+
+    static {
+        double bound = FIRST_BOUND_NANOS;
+        for (int i = 0; i < BUCKETS; i++) {
+            BOUNDS[i] = (long) bound;
+            bound *= GROWTH;
+        }
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void record(long nanos) {
+        int index = Arrays.binarySearch(BOUNDS, nanos);
+        if (index < 0) index = -index - 1;
+        counts.incrementAndGet(index);
+        count.incrementAndGet();
+        sumNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // Outra thread gravou um máximo no meio; tenta de novo.
+        }
+    }
+
+    /** @return o limite superior do balde que contém o percentil {@code quantile} (0..1), ou 0 se vazio */
+    long percentileNanos(double quantile) {
+        long total = count.get();
+        if (total == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i <= BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return i < BUCKETS ? Math.min(BOUNDS[i], maxNanos.get()) : maxNanos.get();
+            }
+        }
+        return maxNanos.get();
+    }
+
+    long getCount() {
+        return count.get();
+    }
+
+    long meanNanos() {
+        long total = count.get();
+        return total == 0 ? 0 : sumNanos.get() / total;
+    }
+
+    long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    void reset() {
+        for (int i = 0; i <= BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sumNanos.set(0);
+        maxNanos.set(0);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.ecoscan;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Backpressure "mantém só o mais recente" entre a câmera (produtor) e a inferência
+ * (consumidor). Os buffers são reciclados: um frame publicado que ainda não foi
+ * consumido é descartado e volta para a lista livre quando chega um mais novo.
+ */
+final class LatestFrameSlot<T> {
+
+    private final ArrayDeque<T> free;
+    private T latest;
+    private long publishedCount;
+    private long droppedCount;
+
+    /** Com três buffers o produtor nunca fica sem onde escrever. */
+    LatestFrameSlot(List<T> buffers) {
+        free = new ArrayDeque<>(buffers);
+    }
+
+    /** @return um buffer livre para escrita, ou {@code null} se todos estiverem em uso */
+    synchronized T acquireForWrite() {
+        return free.pollFirst();
+    }
+
+    synchronized void publish(T frame) {
+        if (latest != null) {
+            free.addLast(latest);
+            droppedCount++;
+        }
+        latest = frame;
+        publishedCount++;
+    }
+
+    /** Devolve o buffer sem publicá-lo (ex.: conversão falhou). */
+    synchronized void recycle(T frame) {
+        free.addLast(frame);
+    }
+
+    /** @return o frame mais recente, que passa a ser do consumidor até {@link #recycle} */
+    synchronized T takeLatest() {
+        T frame = latest;
+        latest = null;
+        return frame;
+    }
+
+    synchronized boolean hasPending() {
+        return latest != null;
+    }
+
+    synchronized long getPublishedCount() {
+        return publishedCount;
+    }
+
+    synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+}
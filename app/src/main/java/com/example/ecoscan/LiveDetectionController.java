@@ -0,0 +1,254 @@
+package com.example.ecoscan;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageCapture;
+import androidx.camera.core.ImageCaptureException;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.core.Preview;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.camera.view.PreviewView;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.ecoscan.StageMetrics.Stage;
+import com.example.ecoscan.core.Detection;
+import com.example.ecoscan.core.TensorFormat;
+import com.example.ecoscan.core.YuvFrameConverter;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Detecção contínua sobre o stream de análise da CameraX. Os frames YUV são convertidos
+ * para a entrada do modelo na thread da câmera e entregues à inferência por um
+ * {@link LatestFrameSlot}, então a inferência sempre pega o frame mais novo. Entre as
+ * inferências o {@link DetectionTracker} propaga as caixas sem rodar o modelo.
+ *
+ * <p>Junto vai um ImageCapture: {@link #capture} tira uma foto em resolução cheia e a entrega
+ * como JPEG em memória, sem gravar arquivo nem abrir o app de câmera.
+ */
+final class LiveDetectionController {
+
+    interface FrameDetector {
+        List<Detection> detect(ByteBuffer input) throws Exception;
+    }
+
+    interface Listener {
+        void onDetections(List<Detection> detections, InferenceExecutor.Timing timing);
+    }
+
+    /** Chamado na main thread. */
+    interface CaptureCallback {
+        void onCaptured(byte[] jpeg, int rotationDegrees);
+
+        void onCaptureError(Exception e);
+    }
+
+    private static final String TAG = "EcoScanLive";
+    private static final int FRAME_BUFFERS = 3;
+
+    static final class Frame {
+        final ByteBuffer input;
+        long timestampNs;
+
+        Frame(int width, int height, TensorFormat format) {
+            input = ByteBuffer.allocateDirect(width * height * 3 * format.bytesPerElement()).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    private final YuvFrameConverter converter;
+    private final LatestFrameSlot<Frame> slot;
+    private final FrameDetector detector;
+    private final Listener listener;
+    private final DetectionTracker tracker;
+    private final ExecutorService analysisExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "EcoScan-CameraAnalysis"));
+    private final AtomicBoolean inferenceInFlight = new AtomicBoolean();
+
+    private ProcessCameraProvider cameraProvider;
+    private ImageCapture imageCapture;
+    private volatile InferenceExecutor.Task inferenceTask;
+    private volatile boolean running;
+
+    LiveDetectionController(int inputWidth, int inputHeight, TensorFormat inputFormat, DetectionTracker.Config trackerConfig,
+                            FrameDetector detector, Listener listener) {
+        converter = new YuvFrameConverter(inputWidth, inputHeight, inputFormat);
+        List<Frame> frames = new ArrayList<>(FRAME_BUFFERS);
+        for (int i = 0; i < FRAME_BUFFERS; i++) {
+            frames.add(new Frame(inputWidth, inputHeight, inputFormat));
+        }
+        slot = new LatestFrameSlot<>(frames);
+        this.detector = detector;
+        this.listener = listener;
+        tracker = new DetectionTracker(trackerConfig);
+    }
+
+    void start(Context context, LifecycleOwner owner, PreviewView previewView) {
+        running = true;
+        // O tracker é usado só na thread de inferência.
+        InferenceExecutor.get().execute(tracker::reset);
+        ListenableFuture<ProcessCameraProvider> future = ProcessCameraProvider.getInstance(context);
+        future.addListener(() -> {
+            if (!running) return;
+            try {
+                cameraProvider = future.get();
+            } catch (ExecutionException | InterruptedException e) {
+                Log.e(TAG, "Não foi possível abrir a câmera.", e);
+                return;
+            }
+            Preview preview = new Preview.Builder().build();
+            preview.setSurfaceProvider(previewView.getSurfaceProvider());
+            ImageAnalysis analysis = new ImageAnalysis.Builder()
+                    .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                    .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_YUV_420_888)
+                    .build();
+            analysis.setAnalyzer(analysisExecutor, this::analyze);
+            ImageCapture capture = new ImageCapture.Builder()
+                    .setCaptureMode(ImageCapture.CAPTURE_MODE_MINIMIZE_LATENCY)
+                    .build();
+            cameraProvider.unbindAll();
+            try {
+                cameraProvider.bindToLifecycle(owner, CameraSelector.DEFAULT_BACK_CAMERA, preview, analysis, capture);
+                imageCapture = capture;
+            } catch (IllegalArgumentException e) {
+                // Câmeras LEGACY nem sempre aceitam os três casos de uso juntos; a foto volta a usar o app de câmera.
+                Log.w(TAG, "Captura em memória indisponível neste aparelho.", e);
+                imageCapture = null;
+                cameraProvider.bindToLifecycle(owner, CameraSelector.DEFAULT_BACK_CAMERA, preview, analysis);
+            }
+        }, ContextCompat.getMainExecutor(context));
+    }
+
+    /**
+     * Tira uma foto sem gravar no disco.
+     *
+     * @return {@code false} se a captura em memória não estiver disponível (câmera parada ou
+     *         aparelho sem suporte); nesse caso {@code callback} não é chamado
+     */
+    boolean capture(Context context, CaptureCallback callback) {
+        ImageCapture capture = imageCapture;
+        if (!running || capture == null) return false;
+        Executor mainExecutor = ContextCompat.getMainExecutor(context);
+        capture.takePicture(analysisExecutor, new ImageCapture.OnImageCapturedCallback() {
+            @Override
+            public void onCaptureSuccess(@NonNull ImageProxy image) {
+                byte[] jpeg;
+                int rotation;
+                try {
+                    ByteBuffer buffer = image.getPlanes()[0].getBuffer();
+                    jpeg = new byte[buffer.remaining()];
+                    buffer.get(jpeg);
+                    rotation = image.getImageInfo().getRotationDegrees();
+                } finally {
+                    image.close();
+                }
+                mainExecutor.execute(() -> callback.onCaptured(jpeg, rotation));
+            }
+
+            @Override
+            public void onError(@NonNull ImageCaptureException e) {
+                mainExecutor.execute(() -> callback.onCaptureError(e));
+            }
+        });
+        return true;
+    }
+
+    void stop() {
+        running = false;
+        imageCapture = null;
+        if (cameraProvider != null) {
+            cameraProvider.unbindAll();
+        }
+        InferenceExecutor.Task task = inferenceTask;
+        if (task != null) {
+            task.cancel();
+        }
+        inferenceInFlight.set(false);
+        Log.d(TAG, "Frames publicados: " + slot.getPublishedCount() + ", descartados: " + slot.getDroppedCount()
+                + "; " + tracker.describeSavings());
+    }
+
+    DetectionTracker getTracker() {
+        return tracker;
+    }
+
+    /** Para a câmera e encerra a thread de análise; o controller não pode ser reiniciado. */
+    void release() {
+        stop();
+        analysisExecutor.shutdown();
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    private void analyze(ImageProxy image) {
+        try {
+            Frame frame = slot.acquireForWrite();
+            if (frame == null) return;
+            boolean published = false;
+            try {
+                ImageProxy.PlaneProxy[] planes = image.getPlanes();
+                StageMetrics.begin(Stage.PREPROCESS);
+                converter.convert(planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                        planes[1].getBuffer(), planes[2].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                        image.getWidth(), image.getHeight(), image.getImageInfo().getRotationDegrees(), frame.input);
+                StageMetrics.end(Stage.PREPROCESS);
+                frame.timestampNs = image.getImageInfo().getTimestamp();
+                slot.publish(frame);
+                published = true;
+            } catch (RuntimeException e) {
+                // Ex.: stride inesperado, ou ImageProxy fechado por um rebind; o frame seguinte tenta de novo.
+                Log.w(TAG, "Frame descartado na conversão.", e);
+            } finally {
+                // Sem isso o buffer sai do pool de vez e o modo ao vivo para de receber frames.
+                if (!published) slot.recycle(frame);
+            }
+        } finally {
+            image.close();
+        }
+        scheduleInference();
+    }
+
+    private void scheduleInference() {
+        if (!running || !slot.hasPending() || !inferenceInFlight.compareAndSet(false, true)) return;
+        inferenceTask = InferenceExecutor.get().submit(() -> {
+            Frame frame = slot.takeLatest();
+            if (frame == null) return Collections.<Detection>emptyList();
+            try {
+                if (!tracker.shouldDetect()) return tracker.predict();
+                frame.input.rewind();
+                return tracker.update(detector.detect(frame.input));
+            } finally {
+                slot.recycle(frame);
+            }
+        }, new InferenceExecutor.Callback<List<Detection>>() {
+            @Override
+            public void onResult(List<Detection> detections, InferenceExecutor.Timing timing) {
+                inferenceInFlight.set(false);
+                listener.onDetections(detections, timing);
+                scheduleInference();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                inferenceInFlight.set(false);
+                Log.e(TAG, "Erro na detecção ao vivo.", e);
+                scheduleInference();
+            }
+        });
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.ecoscan;
+
+import android.content.Context;
+import android.os.Debug;
+import android.os.SystemClock;
+
+import com.example.ecoscan.core.Detection;
+import com.example.ecoscan.core.PixelSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Modo A/B da tela de experimento: roda dois modelos do {@link ModelRegistry} na mesma
+ * imagem, um de cada vez, e compara carregamento, memória nativa, latência e detecções.
+ * Cada modelo é aberto num engine avulso e fechado no fim, então o engine compartilhado
+ * não é afetado.
+ */
+final class ModelComparison {
+
+    static final class Run {
+        final ModelRegistry.Model model;
+        final String tensors;
+        final long loadMs;
+        final long nativeBytes;
+        final float p50Ms;
+        final List<Detection> detections;
+
+        Run(ModelRegistry.Model model, String tensors, long loadMs, long nativeBytes, float p50Ms,
+            List<Detection> detections) {
+            this.model = model;
+            this.tensors = tensors;
+            this.loadMs = loadMs;
+            this.nativeBytes = nativeBytes;
+            this.p50Ms = p50Ms;
+            this.detections = detections;
+        }
+    }
+
+    private static final int MEASURED_RUNS = 5;
+    private static final float MATCH_IOU = 0.5f;
+
+    private ModelComparison() {
+    }
+
+    /** Bloqueia por alguns segundos; só na thread do {@link InferenceExecutor}. */
+    static String compare(Context context, ModelRegistry.Model a, ModelRegistry.Model b, PixelSource pixels,
+                          float threshold, float coordDivisor) throws IOException {
+        Run runA = run(context, a, pixels, threshold, coordDivisor);
+        Run runB = run(context, b, pixels, threshold, coordDivisor);
+        return describe("A", runA) + "\n\n" + describe("B", runB) + "\n\n" + describeAgreement(runA, runB);
+    }
+
+    static Run run(Context context, ModelRegistry.Model model, PixelSource pixels, float threshold,
+                   float coordDivisor) throws IOException {
+        String tensors = ModelRegistry.describeTensors(context, model);
+        // Memória do Interpreter (arena dos tensores, pesos reempacotados pelo XNNPACK); o
+        // arquivo mapeado não entra aqui, aparece no tamanho do modelo.
+        long nativeBefore = Debug.getNativeHeapAllocatedSize();
+        long start = SystemClock.elapsedRealtime();
+        DetectorEngine engine = DetectorEngine.open(context, model);
+        try {
+            engine.warmUp();
+            long loadMs = SystemClock.elapsedRealtime() - start;
+            long nativeBytes = Debug.getNativeHeapAllocatedSize() - nativeBefore;
+
+            ByteBuffer input = engine.getPreprocessor().process(pixels);
+            float[] timesMs = new float[MEASURED_RUNS];
+            List<Detection> detections = null;
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                long runStart = SystemClock.elapsedRealtimeNanos();
+                engine.getBackend().run(input, engine.getPipeline().getDecoder().getOutputBuffer());
+                detections = engine.getPipeline().postProcess(threshold, coordDivisor);
+                timesMs[i] = (SystemClock.elapsedRealtimeNanos() - runStart) / 1_000_000f;
+                input.rewind();
+            }
+            Arrays.sort(timesMs);
+            return new Run(model, tensors, loadMs, nativeBytes, timesMs[MEASURED_RUNS / 2], detections);
+        } finally {
+            engine.close();
+        }
+    }
+
+    private static String describe(String tag, Run run) {
+        StringBuilder text = new StringBuilder(String.format(Locale.US,
+                "%s: %s\n%s\ncarregar %d ms, memória nativa %+.1f MB, p50 %.1f ms, %d detecções",
+                tag, run.model, run.tensors, run.loadMs, run.nativeBytes / 1048576f, run.p50Ms, run.detections.size()));
+        for (Detection detection : run.detections) {
+            text.append(String.format(Locale.US, "\n  %s %.0f%%", detection.label, detection.confidence * 100));
+        }
+        return text.toString();
+    }
+
+    /** Detecções de A com uma de B com a mesma label e IoU de pelo menos {@link #MATCH_IOU}. */
+    private static String describeAgreement(Run a, Run b) {
+        int matched = 0;
+        for (Detection detection : a.detections) {
+            for (Detection other : b.detections) {
+                if (other.label.equals(detection.label)
+                        && other.boundingBox.iou(detection.boundingBox) >= MATCH_IOU) {
+                    matched++;
+                    break;
+                }
+            }
+        }
+        return String.format(Locale.US, "Concordância: %d de %d detecções de A também em B (IoU ≥ %.1f).\n"
+                        + "B é %.1fx %s que A.",
+                matched, a.detections.size(), MATCH_IOU,
+                b.p50Ms <= a.p50Ms ? a.p50Ms / b.p50Ms : b.p50Ms / a.p50Ms,
+                b.p50Ms <= a.p50Ms ? "mais rápido" : "mais lento");
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.ecoscan;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+import org.tensorflow.lite.support.common.FileUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Modelos disponíveis: os {@code .tflite} da raiz dos assets e os copiados para
+ * {@code files/models/} (para testar outra variante sem gerar outro APK). As labels de
+ * {@code nome.tflite} vêm de {@code nome.txt} na mesma pasta, ou de {@code labels.txt} dos
+ * assets. O modelo escolhido fica salvo e é o que o {@link DetectorEngine} carrega.
+ */
+final class ModelRegistry {
+
+    static final class Model {
+        /** "asset:arquivo.tflite" ou "file:arquivo.tflite"; é o que fica salvo. */
+        final String id;
+        final String name;
+        final boolean bundled;
+        final long sizeBytes;
+        private final String modelPath;
+        private final String labelsPath;
+        private final boolean labelsBundled;
+        private final long lastModified;
+
+        private Model(String id, String name, boolean bundled, long sizeBytes, String modelPath,
+                      String labelsPath, boolean labelsBundled, long lastModified) {
+            this.id = id;
+            this.name = name;
+            this.bundled = bundled;
+            this.sizeBytes = sizeBytes;
+            this.modelPath = modelPath;
+            this.labelsPath = labelsPath;
+            this.labelsBundled = labelsBundled;
+            this.lastModified = lastModified;
+        }
+
+        MappedByteBuffer map(Context context) throws IOException {
+            if (bundled) return FileUtil.loadMappedFile(context, modelPath);
+            try (RandomAccessFile file = new RandomAccessFile(modelPath, "r")) {
+                return file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            }
+        }
+
+        InputStream openLabels(Context context) throws IOException {
+            return labelsBundled ? context.getAssets().open(labelsPath) : new FileInputStream(labelsPath);
+        }
+
+        // Muda se o arquivo for substituído por outro com o mesmo nome.
+        private String cacheKey() {
+            return id + "_" + sizeBytes + "_" + lastModified;
+        }
+
+        /** Texto da lista de seleção. */
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s (%s, %.1f MB)", name, bundled ? "app" : "local", sizeBytes / 1048576f);
+        }
+    }
+
+    private static final String TAG = "EcoScanModels";
+    static final String DEFAULT_MODEL = "best.tflite";
+    static final String DEFAULT_LABELS = "labels.txt";
+    static final String MODELS_DIR = "models";
+    private static final String MODEL_SUFFIX = ".tflite";
+    private static final String PREFS_NAME = "ecoscan_models";
+    private static final String KEY_SELECTED = "selected";
+    private static final String KEY_SHAPES = "shapes_";
+
+    private ModelRegistry() {
+    }
+
+    /** Modelos do APK primeiro, depois os locais, cada grupo em ordem alfabética. Lê o disco. */
+    static List<Model> discover(Context context) {
+        List<Model> models = new ArrayList<>();
+        try {
+            String[] assets = context.getAssets().list("");
+            if (assets != null) {
+                Arrays.sort(assets);
+                List<String> assetList = Arrays.asList(assets);
+                for (String asset : assets) {
+                    if (!asset.endsWith(MODEL_SUFFIX)) continue;
+                    String name = baseName(asset);
+                    String labels = assetList.contains(name + ".txt") ? name + ".txt" : DEFAULT_LABELS;
+                    long size;
+                    try (AssetFileDescriptor fd = context.getAssets().openFd(asset)) {
+                        size = fd.getLength();
+                    } catch (IOException e) {
+                        Log.w(TAG, asset + " está comprimido no APK e não pode ser mapeado.", e);
+                        continue;
+                    }
+                    models.add(new Model("asset:" + asset, name, true, size, asset, labels, true, 0));
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Falha ao listar os assets.", e);
+        }
+
+        File[] files = new File(context.getFilesDir(), MODELS_DIR).listFiles((dir, file) -> file.endsWith(MODEL_SUFFIX));
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                String name = baseName(file.getName());
+                File labels = new File(file.getParentFile(), name + ".txt");
+                boolean ownLabels = labels.isFile();
+                models.add(new Model("file:" + file.getName(), name, false, file.length(), file.getAbsolutePath(),
+                        ownLabels ? labels.getAbsolutePath() : DEFAULT_LABELS, !ownLabels, file.lastModified()));
+            }
+        }
+        return models;
+    }
+
+    /**
+     * O modelo salvo, se ainda existir; senão o {@link #DEFAULT_MODEL} do APK.
+     *
+     * @throws IOException se não houver nenhum modelo
+     */
+    static Model selected(Context context) throws IOException {
+        Model model = selected(context, discover(context));
+        if (model == null) throw new IOException("Nenhum modelo .tflite encontrado.");
+        return model;
+    }
+
+    /** Igual a {@link #selected(Context)}, sobre uma lista já descoberta; {@code null} se vazia. */
+    static Model selected(Context context, List<Model> models) {
+        String id = prefs(context).getString(KEY_SELECTED, "asset:" + DEFAULT_MODEL);
+        Model fallback = null;
+        for (Model model : models) {
+            if (model.id.equals(id)) return model;
+            if (fallback == null || model.id.equals("asset:" + DEFAULT_MODEL)) fallback = model;
+        }
+        return fallback;
+    }
+
+    static void select(Context context, Model model) {
+        prefs(context).edit().putString(KEY_SELECTED, model.id).apply();
+    }
+
+    /**
+     * Shapes e tipos de entrada e saída, ex.: "entrada 1x640x640x3 FLOAT32, saída 1x10x8400 FLOAT32".
+     * Na primeira vez abre um Interpreter só para ler os tensores, então é para a thread do
+     * {@link InferenceExecutor}; depois vem das preferências.
+     */
+    static String describeTensors(Context context, Model model) throws IOException {
+        SharedPreferences prefs = prefs(context);
+        String cached = prefs.getString(KEY_SHAPES + model.cacheKey(), null);
+        if (cached != null) return cached;
+        String text;
+        try (Interpreter interpreter = new Interpreter(model.map(context), new Interpreter.Options().setNumThreads(1))) {
+            text = "entrada " + describe(interpreter.getInputTensor(0)) + ", saída " + describe(interpreter.getOutputTensor(0));
+        }
+        prefs.edit().putString(KEY_SHAPES + model.cacheKey(), text).apply();
+        return text;
+    }
+
+    private static String describe(Tensor tensor) {
+        StringBuilder text = new StringBuilder();
+        for (int dim : tensor.shape()) {
+            if (text.length() > 0) text.append('x');
+            text.append(dim);
+        }
+        return text.append(' ').append(tensor.dataType()).toString();
+    }
+
+    private static String baseName(String fileName) {
+        return fileName.substring(0, fileName.length() - MODEL_SUFFIX.length());
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
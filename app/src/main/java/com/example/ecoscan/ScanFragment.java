@@ -5,13 +5,8 @@ import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.content.res.AssetManager;
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.ImageDecoder; // Importante
-import android.graphics.Paint;
-import android.graphics.RectF;
 import android.graphics.drawable.ColorDrawable;
 import android.net.Uri;
 import android.os.Build;
@@ -24,6 +19,7 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.ImageView;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -32,27 +28,18 @@ import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
+import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
 import androidx.fragment.app.Fragment;
 
-import org.tensorflow.lite.Interpreter;
-import org.tensorflow.lite.support.common.FileUtil;
-import org.tensorflow.lite.support.common.ops.NormalizeOp;
-import org.tensorflow.lite.support.image.ImageProcessor;
-import org.tensorflow.lite.support.image.TensorImage;
-import org.tensorflow.lite.support.image.ops.ResizeOp;
+import com.example.ecoscan.StageMetrics.Stage;
+import com.example.ecoscan.core.Detection;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.MappedByteBuffer;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -60,61 +47,70 @@ import java.util.Locale;
 public class ScanFragment extends Fragment {
 
     private static final String TAG = "EcoScanApp";
-    private static final String MODEL_FILE = "best.tflite";
-    private static final String LABEL_FILE = "labels.txt";
     private static final float CONFIDENCE_THRESHOLD = 0.2f;
-    private static final int INPUT_SIZE = 640;
+    // Só para decodificar antes de o engine carregar; depois vale o tamanho do modelo.
+    private static final int DEFAULT_INPUT_SIZE = 640;
+    private static final int LIVE_DETECT_EVERY_N_FRAMES = 5;
+    private static final String RESULT_CACHE_FILE = "detections.cache";
+    private static final int RESULT_CACHE_MAX_BYTES = 256 * 1024;
+    private static final int RESULT_CACHE_MAX_HAMMING = 4;
+    private static final int BEST_BOX_COLOR = 0xFF4CAF50;
 
     private ImageView imageView;
+    private DetectionOverlayView detectionOverlay;
     private Button buttonCamera;
     private Button buttonGallery;
     private Button buttonAnalyze;
+    private Button buttonLive;
+    private Button buttonBatch;
+    private ProgressBar progressBatch;
     private TextView textViewResult;
+    private PreviewView previewView;
+    private TextView textViewLiveOverlay;
 
-    private Interpreter interpreter;
-    private List<String> labels = new ArrayList<>();
-    private int inputWidth;
-    private int inputHeight;
-    private int outputNumClasses;
-    private int outputNumProposals;
-
-    private ImageProcessor imageProcessor;
+    private DetectorEngine engine;
+    private InferenceExecutor.Task engineTask;
+    private DetectionResultCache resultCache;
 
     private ActivityResultLauncher<Intent> cameraLauncher;
     private ActivityResultLauncher<Intent> galleryLauncher;
     private ActivityResultLauncher<String> permissionLauncher;
+    private ActivityResultLauncher<String[]> batchLauncher;
 
-    private Bitmap bitmapToAnalyze;
+    private ImageLoader.InferenceImage imageToAnalyze;
+    private Bitmap bitmapToDisplay;
     private Uri cameraImageUri;
-
-    private static class DisposalDetails {
-        String objectName;
-        String binName;
-        String binDescription;
-        int binColorRes;
-
-        DisposalDetails(String objectName, String binName, String binDescription, int binColorRes) {
-            this.objectName = objectName;
-            this.binName = binName;
-            this.binDescription = binDescription;
-            this.binColorRes = binColorRes;
-        }
-    }
-
+    private InferenceExecutor.Task detectionTask;
+    private LiveDetectionController liveController;
+    private boolean pendingLiveStart;
+    private BatchScanner batchScanner;
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setupLaunchers();
-        try {
-            loadLabels();
-            loadModel();
-            setupImageProcessor();
-            Log.d(TAG, "TensorFlow Lite inicializado com sucesso.");
-        } catch (IOException e) {
-            Log.e(TAG, "Falha ao inicializar o TensorFlow Lite.", e);
-            Toast.makeText(requireContext(), "Não foi possível carregar o modelo ou labels.", Toast.LENGTH_LONG).show();
-        }
+        // Normalmente já carregado (ou carregando) pelo EcoScanApplication; nada bloqueia a main thread.
+        engineTask = DetectorEngine.acquireAsync(requireContext(), new InferenceExecutor.Callback<DetectorEngine>() {
+            @Override
+            public void onResult(DetectorEngine loaded, InferenceExecutor.Timing timing) {
+                engineTask = null;
+                engine = loaded;
+                resultCache = new DetectionResultCache(new File(requireContext().getCacheDir(), RESULT_CACHE_FILE),
+                        engine.getModelFingerprint(), RESULT_CACHE_MAX_BYTES, RESULT_CACHE_MAX_HAMMING);
+                InferenceExecutor.get().execute(resultCache::load);
+                Log.d(TAG, "TensorFlow Lite inicializado com sucesso (espera de " + timing.queueWaitMs + " ms).");
+                if (getView() == null) return;
+                updateAnalyzeButton();
+                if (imageToAnalyze != null) textViewResult.setText("Imagem carregada. Clique em 'Analisar'.");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                engineTask = null;
+                Log.e(TAG, "Falha ao inicializar o TensorFlow Lite.", e);
+                Toast.makeText(requireContext(), "Não foi possível carregar o modelo ou labels.", Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
     @Nullable
@@ -127,75 +123,93 @@ public class ScanFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
         imageView = view.findViewById(R.id.imageView);
+        detectionOverlay = view.findViewById(R.id.detectionOverlay);
         buttonCamera = view.findViewById(R.id.buttonCamera);
         buttonGallery = view.findViewById(R.id.buttonGallery);
         buttonAnalyze = view.findViewById(R.id.buttonAnalyze);
         textViewResult = view.findViewById(R.id.textViewResult);
         textViewResult.setText("");
-        buttonCamera.setOnClickListener(v -> checkCameraPermissionAndOpenCamera());
+        buttonCamera.setOnClickListener(v -> onCameraClicked());
         buttonGallery.setOnClickListener(v -> openGallery());
         buttonAnalyze.setOnClickListener(v -> analyzeImage());
-        buttonAnalyze.setEnabled(false);
+        updateAnalyzeButton();
+
+        buttonLive = view.findViewById(R.id.buttonLive);
+        previewView = view.findViewById(R.id.previewView);
+        textViewLiveOverlay = view.findViewById(R.id.textViewLiveOverlay);
+        buttonLive.setOnClickListener(v -> toggleLiveMode());
+
+        buttonBatch = view.findViewById(R.id.buttonBatch);
+        progressBatch = view.findViewById(R.id.progressBatch);
+        buttonBatch.setOnClickListener(v -> onBatchClicked());
+        buttonBatch.setOnLongClickListener(v -> {
+            // Toque longo descarta um lote interrompido e abre uma nova seleção.
+            if (BatchScanner.pendingCount(requireContext()) == 0) return false;
+            if (batchScanner != null) batchScanner.discard();
+            updateBatchButton();
+            openBatchPicker();
+            return true;
+        });
+        updateBatchButton();
     }
 
 
     private void analyzeImage() {
-        if (bitmapToAnalyze != null) {
+        if (imageToAnalyze != null) {
             textViewResult.setText("Analisando...");
             Log.d(TAG, "Iniciando detecção...");
-            imageView.setImageBitmap(bitmapToAnalyze);
-            detectObjects(bitmapToAnalyze);
+            imageView.setImageBitmap(bitmapToDisplay);
+            detectObjects(imageToAnalyze, bitmapToDisplay);
         } else {
             Toast.makeText(requireContext(), "Selecione uma imagem da câmera ou galeria primeiro.", Toast.LENGTH_SHORT).show();
             textViewResult.setText("Nenhuma imagem selecionada para análise.");
         }
     }
 
-    private void loadLabels() throws IOException {
-        AssetManager assetManager = requireContext().getAssets();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(assetManager.open(LABEL_FILE)));
-        String line;
-        while ((line = reader.readLine()) != null) {
-            labels.add(line);
-        }
-        reader.close();
-    }
-
-    private void loadModel() throws IOException {
-        MappedByteBuffer tfliteModel = FileUtil.loadMappedFile(requireContext(), MODEL_FILE);
-        Interpreter.Options options = new Interpreter.Options();
-        options.setNumThreads(4);
-        interpreter = new Interpreter(tfliteModel, options);
-        int[] inputShape = interpreter.getInputTensor(0).shape();
-        inputWidth = inputShape[1];
-        inputHeight = inputShape[2];
-        int[] outputShape = interpreter.getOutputTensor(0).shape();
-        outputNumClasses = outputShape[1] - 4;
-        outputNumProposals = outputShape[2];
-    }
 
-    private void setupImageProcessor() {
-        imageProcessor = new ImageProcessor.Builder()
-                .add(new ResizeOp(inputHeight, inputWidth, ResizeOp.ResizeMethod.BILINEAR))
-                .add(new NormalizeOp(0f, 255f))
-                .build();
+    /** Analisar só fica disponível com uma imagem carregada e o detector pronto. */
+    private void updateAnalyzeButton() {
+        boolean live = liveController != null && liveController.isRunning();
+        buttonAnalyze.setEnabled(engine != null && imageToAnalyze != null && !live);
     }
 
-
-    private Bitmap loadBitmapFromUri(Uri uri) throws IOException {
+    private void loadBitmapsFromUri(Uri uri) throws IOException {
         ContentResolver resolver = requireContext().getContentResolver();
-        ImageDecoder.Source source = ImageDecoder.createSource(resolver, uri);
+        int inputWidth = engine != null ? engine.getInputWidth() : DEFAULT_INPUT_SIZE;
+        int inputHeight = engine != null ? engine.getInputHeight() : DEFAULT_INPUT_SIZE;
+        releaseImageToAnalyze();
+        StageMetrics.begin(Stage.LOAD_BITMAP);
+        imageToAnalyze = ImageLoader.decodeForInference(resolver, uri, inputWidth, inputHeight,
+                BitmapPool.get(requireContext()));
+        bitmapToDisplay = ImageLoader.decodeForDisplay(resolver, uri, ImageLoader.DISPLAY_MAX_SIDE);
+        StageMetrics.end(Stage.LOAD_BITMAP);
+    }
 
-        return ImageDecoder.decodeBitmap(source, (decoder, info, s) -> {
-            decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+    /** Devolve o bitmap ao pool depois de qualquer detecção ainda na fila que o use. */
+    private void releaseImageToAnalyze() {
+        if (imageToAnalyze == null) return;
+        Bitmap bitmap = imageToAnalyze.bitmap;
+        imageToAnalyze = null;
+        BitmapPool pool = BitmapPool.get(requireContext());
+        InferenceExecutor.get().execute(() -> pool.release(bitmap));
+    }
 
-            decoder.setMutableRequired(true);
-        });
+    /** Foto tirada com a câmera ao vivo, decodificada direto da memória. */
+    private void loadBitmapsFromJpeg(byte[] jpeg, int rotation) throws IOException {
+        int inputWidth = engine != null ? engine.getInputWidth() : DEFAULT_INPUT_SIZE;
+        int inputHeight = engine != null ? engine.getInputHeight() : DEFAULT_INPUT_SIZE;
+        releaseImageToAnalyze();
+        StageMetrics.begin(Stage.LOAD_BITMAP);
+        imageToAnalyze = ImageLoader.decodeForInference(jpeg, rotation, inputWidth, inputHeight,
+                BitmapPool.get(requireContext()));
+        bitmapToDisplay = ImageLoader.decodeForDisplay(jpeg, rotation, ImageLoader.DISPLAY_MAX_SIDE);
+        StageMetrics.end(Stage.LOAD_BITMAP);
     }
 
     private Uri createImageUri() {
-        File imagePath = new File(requireContext().getCacheDir(), "images");
+        File imagePath = CacheJanitor.imagesDir(requireContext());
         if (!imagePath.exists()) imagePath.mkdirs();
+        CacheJanitor.trimAsync(requireContext());
 
         String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
         File newFile = new File(imagePath, "IMG_" + timeStamp + ".jpg");
@@ -205,19 +219,18 @@ public class ScanFragment extends Fragment {
 
     private void setupLaunchers() {
         permissionLauncher = registerForActivityResult(new ActivityResultContracts.RequestPermission(), isGranted -> {
-            if (isGranted) openCamera();
+            if (isGranted && pendingLiveStart) startLiveMode();
+            else if (isGranted) openCamera();
             else Toast.makeText(requireContext(), "Permissão da câmera negada.", Toast.LENGTH_SHORT).show();
         });
 
         cameraLauncher = registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), result -> {
             if (result.getResultCode() == android.app.Activity.RESULT_OK) {
                 if (cameraImageUri != null) {
+                    cancelDetection();
                     try {
-                        bitmapToAnalyze = loadBitmapFromUri(cameraImageUri);
-                        imageView.setScaleType(ImageView.ScaleType.CENTER_CROP);
-                        imageView.setImageBitmap(bitmapToAnalyze);
-                        textViewResult.setText("Imagem carregada. Clique em 'Analisar'.");
-                        buttonAnalyze.setEnabled(true);
+                        loadBitmapsFromUri(cameraImageUri);
+                        showLoadedImage();
                     } catch (IOException e) {
                         Log.e(TAG, "Erro ao carregar imagem da câmera (Uri).", e);
                         textViewResult.setText("Erro ao carregar foto.");
@@ -226,16 +239,28 @@ public class ScanFragment extends Fragment {
             }
         });
 
+        batchLauncher = registerForActivityResult(new ActivityResultContracts.OpenMultipleDocuments(), uris -> {
+            if (uris == null || uris.isEmpty()) return;
+            ContentResolver resolver = requireContext().getContentResolver();
+            for (Uri uri : uris) {
+                try {
+                    // Permissão persistente para o lote poder ser retomado depois de reiniciar o app.
+                    resolver.takePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                } catch (SecurityException e) {
+                    Log.w(TAG, "Sem permissão persistente para " + uri, e);
+                }
+            }
+            startBatch(uris);
+        });
+
         galleryLauncher = registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), result -> {
             if (result.getResultCode() == android.app.Activity.RESULT_OK && result.getData() != null) {
                 Uri imageUri = result.getData().getData();
                 if (imageUri != null) {
+                    cancelDetection();
                     try {
-                        bitmapToAnalyze = loadBitmapFromUri(imageUri);
-                        imageView.setScaleType(ImageView.ScaleType.CENTER_CROP);
-                        imageView.setImageBitmap(bitmapToAnalyze);
-                        textViewResult.setText("Imagem carregada. Clique em 'Analisar'.");
-                        buttonAnalyze.setEnabled(true);
+                        loadBitmapsFromUri(imageUri);
+                        showLoadedImage();
                     } catch (IOException e) {
                         Log.e(TAG, "Erro ao carregar imagem da galeria.", e);
                         textViewResult.setText("Erro ao carregar imagem da galeria.");
@@ -246,6 +271,8 @@ public class ScanFragment extends Fragment {
     }
 
     private void checkCameraPermissionAndOpenCamera() {
+        stopLiveMode();
+        pendingLiveStart = false;
         if (ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
             openCamera();
         } else {
@@ -253,6 +280,125 @@ public class ScanFragment extends Fragment {
         }
     }
 
+    private void toggleLiveMode() {
+        if (liveController != null && liveController.isRunning()) {
+            stopLiveMode();
+            return;
+        }
+        if (engine == null) {
+            Toast.makeText(requireContext(), engineTask != null
+                    ? "O detector ainda está carregando." : "Detector não foi inicializado.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
+            startLiveMode();
+        } else {
+            pendingLiveStart = true;
+            permissionLauncher.launch(Manifest.permission.CAMERA);
+        }
+    }
+
+    private void startLiveMode() {
+        pendingLiveStart = false;
+        cancelDetection();
+        if (liveController == null) {
+            DetectionTracker.Config trackerConfig = new DetectionTracker.Config();
+            trackerConfig.detectEveryNFrames = LIVE_DETECT_EVERY_N_FRAMES;
+            // Os jobs rodam na thread de inferência e podem terminar depois do onDestroy, que
+            // zera o campo: ficam com o engine com que foram criados.
+            DetectorEngine engine = this.engine;
+            LiveDetectionController.FrameDetector detector = input ->
+                    engine.detect(input, CONFIDENCE_THRESHOLD, engine.getCoordDivisor());
+            liveController = new LiveDetectionController(engine.getInputWidth(), engine.getInputHeight(),
+                    engine.getInputFormat(), trackerConfig, detector, this::showLiveDetections);
+        }
+        imageView.setVisibility(View.GONE);
+        detectionOverlay.setVisibility(View.GONE);
+        previewView.setVisibility(View.VISIBLE);
+        textViewLiveOverlay.setVisibility(View.VISIBLE);
+        textViewLiveOverlay.setText("Aponte a câmera para um objeto.");
+        buttonLive.setText(R.string.botao_parar_ao_vivo);
+        buttonAnalyze.setEnabled(false);
+        textViewResult.setText("");
+        liveController.start(requireContext(), getViewLifecycleOwner(), previewView);
+    }
+
+    private void stopLiveMode() {
+        if (liveController == null || !liveController.isRunning()) return;
+        liveController.stop();
+        buttonCamera.setEnabled(true);
+        previewView.setVisibility(View.GONE);
+        textViewLiveOverlay.setVisibility(View.GONE);
+        imageView.setVisibility(View.VISIBLE);
+        detectionOverlay.setVisibility(View.VISIBLE);
+        buttonLive.setText(R.string.botao_ao_vivo);
+        updateAnalyzeButton();
+        textViewResult.setText("Ao vivo: " + liveController.getTracker().describeSavings() + ".");
+    }
+
+    private void showLiveDetections(List<Detection> detections, InferenceExecutor.Timing timing) {
+        EcoScanApplication.markFirstResult("ao vivo");
+        if (detections.isEmpty()) {
+            textViewLiveOverlay.setText("Aponte a câmera para um objeto.");
+            textViewLiveOverlay.setBackgroundColor(ContextCompat.getColor(requireContext(), R.color.lixeira_cinza));
+            return;
+        }
+        DisposalRule rule = engine.getDisposalRules().forClass(detections.get(0).classIndex);
+        textViewLiveOverlay.setText(rule.objectName + " → " + rule.binName);
+        textViewLiveOverlay.setBackgroundColor(rule.binColor);
+    }
+
+    private void onCameraClicked() {
+        if (liveController != null && liveController.isRunning()) {
+            captureFromLive();
+        } else {
+            checkCameraPermissionAndOpenCamera();
+        }
+    }
+
+    /** Foto da câmera já aberta, direto para a memória: sem arquivo, sem app de câmera. */
+    private void captureFromLive() {
+        boolean started = liveController.capture(requireContext(), new LiveDetectionController.CaptureCallback() {
+            @Override
+            public void onCaptured(byte[] jpeg, int rotationDegrees) {
+                if (getView() == null) return;
+                stopLiveMode();
+                cancelDetection();
+                try {
+                    loadBitmapsFromJpeg(jpeg, rotationDegrees);
+                    showLoadedImage();
+                } catch (IOException e) {
+                    Log.e(TAG, "Erro ao decodificar a captura da câmera.", e);
+                    textViewResult.setText("Erro ao carregar foto.");
+                }
+            }
+
+            @Override
+            public void onCaptureError(Exception e) {
+                Log.e(TAG, "Falha na captura em memória.", e);
+                if (getView() == null) return;
+                buttonCamera.setEnabled(true);
+                Toast.makeText(requireContext(), "Não foi possível tirar a foto.", Toast.LENGTH_SHORT).show();
+            }
+        });
+        if (started) {
+            buttonCamera.setEnabled(false);
+            textViewLiveOverlay.setText("Capturando...");
+        } else {
+            stopLiveMode();
+            checkCameraPermissionAndOpenCamera();
+        }
+    }
+
+    private void showLoadedImage() {
+        detectionOverlay.clear();
+        imageView.setScaleType(ImageView.ScaleType.CENTER_CROP);
+        imageView.setImageBitmap(bitmapToDisplay);
+        textViewResult.setText(engine != null
+                ? "Imagem carregada. Clique em 'Analisar'." : "Imagem carregada. Preparando o detector...");
+        updateAnalyzeButton();
+    }
+
     private void openCamera() {
         cameraImageUri = createImageUri();
         Intent takePictureIntent = new Intent(MediaStore.ACTION_IMAGE_CAPTURE);
@@ -261,128 +407,180 @@ public class ScanFragment extends Fragment {
     }
 
     private void openGallery() {
+        stopLiveMode();
         Intent pickIntent = new Intent(Intent.ACTION_PICK, MediaStore.Images.Media.EXTERNAL_CONTENT_URI);
         galleryLauncher.launch(pickIntent);
     }
 
-    private void detectObjects(Bitmap bitmap) {
-        if (interpreter == null || labels.isEmpty()) {
-            Toast.makeText(requireContext(), "Detector não foi inicializado.", Toast.LENGTH_SHORT).show();
+    private void onBatchClicked() {
+        if (batchScanner != null && batchScanner.isRunning()) {
+            batchScanner.cancel();
+            updateBatchButton();
+            textViewResult.setText("Lote pausado.");
             return;
         }
+        if (engine == null) {
+            Toast.makeText(requireContext(), engineTask != null
+                    ? "O detector ainda está carregando." : "Detector não foi inicializado.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (BatchScanner.pendingCount(requireContext()) > 0) {
+            stopLiveMode();
+            ensureBatchScanner().resume();
+            updateBatchButton();
+            textViewResult.setText("Retomando lote...");
+        } else {
+            openBatchPicker();
+        }
+    }
 
-        TensorImage tensorImage = TensorImage.fromBitmap(bitmap);
-        tensorImage = imageProcessor.process(tensorImage);
-        ByteBuffer inputBuffer = tensorImage.getBuffer();
+    private void openBatchPicker() {
+        stopLiveMode();
+        batchLauncher.launch(new String[]{"image/*"});
+    }
 
-        float[][][] outputArray = new float[1][4 + outputNumClasses][outputNumProposals];
+    private void startBatch(List<Uri> uris) {
+        if (engine == null) return;
+        ensureBatchScanner().start(uris);
+        progressBatch.setMax(uris.size());
+        progressBatch.setProgress(0);
+        updateBatchButton();
+        textViewResult.setText("Analisando " + uris.size() + " imagens...");
+    }
 
-        try {
-            interpreter.run(inputBuffer, outputArray);
-        } catch (Exception e) {
-            Log.e(TAG, "Erro na execução do modelo TFLite.", e);
-            Toast.makeText(requireContext(), "Erro na execução do modelo.", Toast.LENGTH_LONG).show();
-            return;
+    private BatchScanner ensureBatchScanner() {
+        if (batchScanner == null) {
+            DetectorEngine engine = this.engine;
+            batchScanner = new BatchScanner(requireContext(), engine,
+                    (output, offset) -> engine.getPipeline().postProcess(output, offset, CONFIDENCE_THRESHOLD, engine.getCoordDivisor()),
+                    new BatchScanner.Listener() {
+                        @Override
+                        public void onProgress(int done, int total, float imagesPerSecond) {
+                            progressBatch.setMax(total);
+                            progressBatch.setProgress(done);
+                            textViewResult.setText(String.format(Locale.getDefault(),
+                                    "Lote: %d de %d imagens (%.1f img/s)", done, total, imagesPerSecond));
+                        }
+
+                        @Override
+                        public void onFinished(int total, long[] countsByLabel, float imagesPerSecond) {
+                            updateBatchButton();
+                            textViewResult.setText(describeBatch(total, countsByLabel, imagesPerSecond));
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            updateBatchButton();
+                            Toast.makeText(requireContext(), "Erro ao analisar o lote.", Toast.LENGTH_LONG).show();
+                            textViewResult.setText("Lote interrompido; toque para retomar.");
+                        }
+                    });
         }
+        return batchScanner;
+    }
 
-        List<Detection> detections = postProcessYolo(outputArray[0], bitmap.getWidth(), bitmap.getHeight());
-        displayDetectionResult(detections, bitmap);
+    private void updateBatchButton() {
+        boolean running = batchScanner != null && batchScanner.isRunning();
+        int pending = BatchScanner.pendingCount(requireContext());
+        if (running) {
+            buttonBatch.setText(R.string.botao_pausar_lote);
+        } else if (pending > 0) {
+            int total = BatchScanner.pendingTotal(requireContext());
+            buttonBatch.setText(getString(R.string.botao_retomar_lote, total - pending, total));
+        } else {
+            buttonBatch.setText(R.string.botao_lote);
+        }
+        progressBatch.setVisibility(running ? View.VISIBLE : View.GONE);
     }
 
-    private static class Detection {
-        RectF boundingBox;
-        String label;
-        float confidence;
-        Detection(RectF boundingBox, String label, float confidence) {
-            this.boundingBox = boundingBox;
-            this.label = label;
-            this.confidence = confidence;
+    private String describeBatch(int total, long[] countsByLabel, float imagesPerSecond) {
+        DisposalRules rules = engine.getDisposalRules();
+        StringBuilder text = new StringBuilder(String.format(Locale.getDefault(),
+                "Lote concluído: %d imagens (%.1f img/s).", total, imagesPerSecond));
+        for (int i = 0; i < countsByLabel.length; i++) {
+            if (countsByLabel[i] == 0) continue;
+            text.append('\n').append(rules.forClass(i).objectName).append(": ").append(countsByLabel[i]);
         }
+        return text.toString();
     }
 
-    private List<Detection> postProcessYolo(float[][] output, int originalWidth, int originalHeight) {
-        float[][] transposedOutput = new float[outputNumProposals][4 + outputNumClasses];
-        for (int i = 0; i < 4 + outputNumClasses; i++) {
-            for (int j = 0; j < outputNumProposals; j++) {
-                transposedOutput[j][i] = output[i][j];
-            }
+    private void detectObjects(ImageLoader.InferenceImage image, Bitmap displayBitmap) {
+        if (engine == null || engine.getLabels().isEmpty()) {
+            Toast.makeText(requireContext(), "Detector não foi inicializado.", Toast.LENGTH_SHORT).show();
+            return;
         }
-        List<Detection> allDetections = new ArrayList<>();
-        for (int i = 0; i < outputNumProposals; i++) {
-            float[] proposal = transposedOutput[i];
-            int bestClassIndex = -1;
-            float maxScore = 0.0f;
-            for (int j = 4; j < 4 + outputNumClasses; j++) {
-                if (proposal[j] > maxScore) {
-                    maxScore = proposal[j];
-                    bestClassIndex = j - 4;
-                }
+
+        cancelDetection();
+        // cancel() não interrompe um job já em andamento e o onDestroy zera os campos.
+        DetectorEngine engine = this.engine;
+        DetectionResultCache resultCache = this.resultCache;
+        detectionTask = InferenceExecutor.get().submit(() -> {
+            long imageHash = DetectionResultCache.dHash(image.bitmap);
+            List<Detection> detections = resultCache.get(imageHash, engine.getLabelMap());
+            if (detections != null) {
+                Log.d(TAG, "Resultado reaproveitado do cache (" + resultCache.getHits() + " acertos).");
+            } else {
+                detections = engine.detectAdaptive(image.pixels(), CONFIDENCE_THRESHOLD, engine.getCoordDivisor());
+                resultCache.put(imageHash, detections);
             }
-            if (maxScore > CONFIDENCE_THRESHOLD) {
-                float cx = proposal[0], cy = proposal[1], w = proposal[2], h = proposal[3];
-                float left = cx - (w / 2f), top = cy - (h / 2f), right = cx + (w / 2f), bottom = cy + (h / 2f);
-                String label = (bestClassIndex >= 0 && bestClassIndex < labels.size()) ? labels.get(bestClassIndex) : "Desconhecido";
-                RectF boundingBox = new RectF(left / INPUT_SIZE, top / INPUT_SIZE, right / INPUT_SIZE, bottom / INPUT_SIZE);
-                allDetections.add(new Detection(boundingBox, label, maxScore));
+            return detections;
+        }, new InferenceExecutor.Callback<List<Detection>>() {
+            @Override
+            public void onResult(List<Detection> result, InferenceExecutor.Timing timing) {
+                detectionTask = null;
+                Log.d(TAG, String.format(Locale.US, "Detecção concluída: fila %d ms, processamento %d ms.",
+                        timing.queueWaitMs, timing.computeMs));
+                displayDetectionResult(result, displayBitmap);
             }
-        }
-        return nonMaxSuppression(allDetections);
-    }
-
-    private List<Detection> nonMaxSuppression(List<Detection> allDetections) {
-        List<Detection> nmsList = new ArrayList<>();
-        float IOU_THRESHOLD = 0.45f;
-        allDetections.sort(Comparator.comparingDouble((Detection d) -> d.confidence).reversed());
-        for (Detection detection : allDetections) {
-            boolean keep = true;
-            for (Detection nmsDetection : nmsList) {
-                float iou = calculateIoU(detection.boundingBox, nmsDetection.boundingBox);
-                if (iou > IOU_THRESHOLD) {
-                    keep = false;
-                    break;
-                }
+
+            @Override
+            public void onError(Exception e) {
+                detectionTask = null;
+                Log.e(TAG, "Erro na execução do modelo TFLite.", e);
+                Toast.makeText(requireContext(), "Erro na execução do modelo.", Toast.LENGTH_LONG).show();
+                textViewResult.setText("");
             }
-            if (keep) nmsList.add(detection);
-        }
-        return nmsList;
+        });
     }
 
-    private float calculateIoU(RectF boxA, RectF boxB) {
-        float xA = Math.max(boxA.left, boxB.left), yA = Math.max(boxA.top, boxB.top);
-        float xB = Math.min(boxA.right, boxB.right), yB = Math.min(boxA.bottom, boxB.bottom);
-        float interArea = Math.max(0, xB - xA) * Math.max(0, yB - yA);
-        float boxAArea = (boxA.right - boxA.left) * (boxA.bottom - boxA.top);
-        float boxBArea = (boxB.right - boxB.left) * (boxB.bottom - boxB.top);
-        float unionArea = (boxAArea + boxBArea - interArea);
-        return interArea / unionArea;
+    private void cancelDetection() {
+        if (detectionTask != null) {
+            detectionTask.cancel();
+            detectionTask = null;
+        }
     }
 
     private void displayDetectionResult(List<Detection> detections, Bitmap originalBitmap) {
+        EcoScanApplication.markFirstResult("foto");
         if (detections.isEmpty()) {
             textViewResult.setText("Nenhum objeto reconhecido. Tente novamente.");
             imageView.setImageBitmap(originalBitmap);
+            detectionOverlay.clear();
             return;
         }
         Detection bestDetection = detections.get(0);
-        DisposalDetails details = getDisposalDetails(bestDetection.label);
-        textViewResult.setText("Resultado encontrado para: " + details.objectName);
+        ScanHistory.get(requireContext()).record(bestDetection, 0);
+        DisposalRule rule = engine.getDisposalRules().forClass(bestDetection.classIndex);
+        textViewResult.setText("Resultado encontrado para: " + rule.objectName);
         imageView.setScaleType(ImageView.ScaleType.FIT_CENTER);
-        drawDetectionBox(originalBitmap, bestDetection);
+        imageView.setImageBitmap(originalBitmap);
+        detectionOverlay.setImage(originalBitmap.getWidth(), originalBitmap.getHeight(), ImageView.ScaleType.FIT_CENTER);
+        detectionOverlay.setDetections(detections.subList(0, 1), BEST_BOX_COLOR, false);
 
-        showResultDialog(details);
+        showResultDialog(rule);
     }
 
-    private void showResultDialog(DisposalDetails details) {
+    private void showResultDialog(DisposalRule rule) {
         LayoutInflater inflater = LayoutInflater.from(requireContext());
         View dialogView = inflater.inflate(R.layout.dialog_result_layout, null);
         TextView textMaterialName = dialogView.findViewById(R.id.textMaterialName);
         TextView textBinName = dialogView.findViewById(R.id.textBinName);
         TextView textBinType = dialogView.findViewById(R.id.textBinType);
         View viewBinColor = dialogView.findViewById(R.id.viewBinColor);
-        textMaterialName.setText(details.objectName);
-        textBinName.setText(details.binName);
-        textBinType.setText(details.binDescription);
-        viewBinColor.setBackgroundColor(ContextCompat.getColor(requireContext(), details.binColorRes));
+        textMaterialName.setText(rule.objectName);
+        textBinName.setText(rule.binName);
+        textBinType.setText(rule.binDescription);
+        viewBinColor.setBackgroundColor(rule.binColor);
         AlertDialog.Builder builder = new AlertDialog.Builder(requireContext());
         builder.setView(dialogView);
         builder.setPositiveButton("Fechar", (dialog, which) -> {
@@ -396,40 +594,42 @@ public class ScanFragment extends Fragment {
         dialog.show();
     }
 
-    private DisposalDetails getDisposalDetails(String label) {
-        switch (label.toLowerCase(Locale.ROOT)) {
-            case "plastic": return new DisposalDetails("Plástico", "Lixeira Vermelha", "Lixo Reciclável", R.color.lixeira_vermelho);
-            case "paper": return new DisposalDetails("Papel", "Lixeira Azul", "Lixo Reciclável", R.color.lixeira_azul);
-            case "cardboard": return new DisposalDetails("Papelão", "Lixeira Azul", "Lixo Reciclável", R.color.lixeira_azul);
-            case "metal": return new DisposalDetails("Metal", "Lixeira Amarela", "Lixo Reciclável", R.color.lixeira_amarelo);
-            case "glass": return new DisposalDetails("Vidro", "Lixeira Verde", "Lixo Reciclável", R.color.lixeira_verde);
-            case "biodegradable": return new DisposalDetails("Orgânico", "Lixeira Marrom", "Lixo Orgânico / Compostagem", R.color.lixeira_marrom);
-            default: return new DisposalDetails("Desconhecido", "Lixeira Cinza", "Lixo Comum / Não Reciclável", R.color.lixeira_cinza);
+    @Override
+    public void onStop() {
+        super.onStop();
+        ScanHistory.get(requireContext()).close();
+        if (resultCache != null) {
+            DetectionResultCache cache = resultCache;
+            InferenceExecutor.get().execute(cache::flush);
         }
     }
 
-    private void drawDetectionBox(Bitmap originalBitmap, Detection bestDetection) {
-        Bitmap mutableBitmap = originalBitmap.copy(Bitmap.Config.ARGB_8888, true);
-        Canvas canvas = new Canvas(mutableBitmap);
-        Paint paint = new Paint();
-        paint.setColor(Color.parseColor("#4CAF50"));
-        paint.setStyle(Paint.Style.STROKE);
-        paint.setStrokeWidth(Math.max(mutableBitmap.getWidth(), mutableBitmap.getHeight()) / 100f);
-        RectF scaledBox = new RectF(
-                bestDetection.boundingBox.left * originalBitmap.getWidth(),
-                bestDetection.boundingBox.top * originalBitmap.getHeight(),
-                bestDetection.boundingBox.right * originalBitmap.getWidth(),
-                bestDetection.boundingBox.bottom * originalBitmap.getHeight()
-        );
-        canvas.drawRect(scaledBox, paint);
-        imageView.setImageBitmap(mutableBitmap);
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        cancelDetection();
+        if (liveController != null) {
+            liveController.release();
+            liveController = null;
+        }
+        if (batchScanner != null) {
+            // O progresso fica salvo; o lote pode ser retomado ao voltar para a tela.
+            batchScanner.release();
+            batchScanner = null;
+        }
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
-        if (interpreter != null) {
-            interpreter.close();
+        releaseImageToAnalyze();
+        if (engineTask != null) {
+            engineTask.cancel();
+            engineTask = null;
+        }
+        if (engine != null) {
+            engine.release();
+            engine = null;
         }
     }
 }
\ No newline at end of file
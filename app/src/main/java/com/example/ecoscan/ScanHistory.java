@@ -0,0 +1,194 @@
+package com.example.ecoscan;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.ecoscan.core.Detection;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fachada do {@link ScanHistoryStore} para o app: toda escrita e leitura acontece numa
+ * thread de I/O própria, então a UI nunca bloqueia no disco.
+ */
+final class ScanHistory {
+
+    interface Callback<T> {
+        void onResult(T result);
+    }
+
+    private static final String TAG = "EcoScanHistory";
+    private static final String FILE_NAME = "scan_history.log";
+    private static final int FLUSH_EVERY = 32;
+
+    private static ScanHistory instance;
+
+    private final File file;
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> new Thread(r, "EcoScan-History"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private ScanHistoryStore store;
+
+    private ScanHistory(Context context) {
+        file = new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    static synchronized ScanHistory get(Context context) {
+        if (instance == null) {
+            instance = new ScanHistory(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /** Só na thread de I/O. */
+    private ScanHistoryStore store() throws IOException {
+        if (store == null) {
+            store = new ScanHistoryStore(file, FLUSH_EVERY);
+            Log.d(TAG, "Histórico aberto com " + store.size() + " registros.");
+        }
+        return store;
+    }
+
+    void record(Detection detection, long thumbnailId) {
+        long timestampMs = System.currentTimeMillis();
+        int labelIndex = detection.classIndex;
+        float confidence = detection.confidence;
+        float left = detection.boundingBox.left, top = detection.boundingBox.top;
+        float right = detection.boundingBox.right, bottom = detection.boundingBox.bottom;
+        io.execute(() -> {
+            ScanHistoryStore.Record record = new ScanHistoryStore.Record();
+            record.timestampMs = timestampMs;
+            record.labelIndex = labelIndex;
+            record.confidence = confidence;
+            record.left = left;
+            record.top = top;
+            record.right = right;
+            record.bottom = bottom;
+            record.thumbnailId = thumbnailId;
+            try {
+                store().append(record);
+            } catch (IOException e) {
+                Log.e(TAG, "Falha ao gravar no histórico.", e);
+            }
+        });
+    }
+
+    void flush() {
+        io.execute(() -> {
+            if (store != null) store.flush();
+        });
+    }
+
+    /**
+     * Grava o que falta e fecha o arquivo, tirando a área pré-alocada da janela de escrita.
+     * O próximo {@link #record} reabre.
+     */
+    void close() {
+        io.execute(() -> {
+            if (store == null) return;
+            try {
+                store.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Falha ao fechar o histórico.", e);
+            }
+            store = null;
+        });
+    }
+
+    /** Os {@code limit} registros mais recentes, do mais novo para o mais antigo. */
+    void loadRecent(int limit, Callback<List<ScanHistoryStore.Record>> callback) {
+        io.execute(() -> {
+            List<ScanHistoryStore.Record> records = new ArrayList<>();
+            try {
+                store().forEachReverse((index, record) -> {
+                    ScanHistoryStore.Record copy = new ScanHistoryStore.Record();
+                    copy.timestampMs = record.timestampMs;
+                    copy.labelIndex = record.labelIndex;
+                    copy.confidence = record.confidence;
+                    copy.left = record.left;
+                    copy.top = record.top;
+                    copy.right = record.right;
+                    copy.bottom = record.bottom;
+                    copy.thumbnailId = record.thumbnailId;
+                    records.add(copy);
+                    return records.size() < limit;
+                });
+            } catch (IOException e) {
+                Log.e(TAG, "Falha ao ler o histórico.", e);
+            }
+            mainHandler.post(() -> callback.onResult(records));
+        });
+    }
+
+    /** Contagem por índice de label sobre todo o histórico, em uma passada sequencial. */
+    void countByLabel(int numLabels, Callback<long[]> callback) {
+        io.execute(() -> {
+            long[] counts = new long[numLabels];
+            try {
+                store().forEach((index, record) -> {
+                    if (record.labelIndex >= 0 && record.labelIndex < numLabels) counts[record.labelIndex]++;
+                    return true;
+                });
+            } catch (IOException e) {
+                Log.e(TAG, "Falha ao ler o histórico.", e);
+            }
+            mainHandler.post(() -> callback.onResult(counts));
+        });
+    }
+
+    /**
+     * Resumo para a tela de métricas, ex.: "Histórico: 42 análises (lata 20, pet 12). Últimas:
+     * lata 91% 14:02, ...". Vazio se não há registros.
+     */
+    void describe(List<String> labels, int recentLimit, Callback<String> callback) {
+        io.execute(() -> {
+            String text = "";
+            try {
+                text = describe(store(), labels, recentLimit);
+            } catch (IOException e) {
+                Log.e(TAG, "Falha ao ler o histórico.", e);
+            }
+            String summary = text;
+            mainHandler.post(() -> callback.onResult(summary));
+        });
+    }
+
+    private static String describe(ScanHistoryStore store, List<String> labels, int recentLimit) throws IOException {
+        if (store.size() == 0) return "";
+        long[] counts = new long[labels.size()];
+        store.forEach((index, record) -> {
+            if (record.labelIndex >= 0 && record.labelIndex < counts.length) counts[record.labelIndex]++;
+            return true;
+        });
+        StringBuilder text = new StringBuilder("Histórico: " + store.size() + " análises (");
+        String separator = "";
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) continue;
+            text.append(separator).append(labels.get(i)).append(' ').append(counts[i]);
+            separator = ", ";
+        }
+        text.append("). Últimas:");
+        SimpleDateFormat time = new SimpleDateFormat("dd/MM HH:mm", Locale.US);
+        store.forEachReverse(new ScanHistoryStore.RecordVisitor() {
+            int shown;
+
+            @Override
+            public boolean visit(long index, ScanHistoryStore.Record record) {
+                String label = record.labelIndex >= 0 && record.labelIndex < labels.size() ? labels.get(record.labelIndex) : "?";
+                text.append(shown == 0 ? " " : ", ").append(String.format(Locale.US, "%s %.0f%% %s",
+                        label, record.confidence * 100, time.format(new Date(record.timestampMs))));
+                return ++shown < recentLimit;
+            }
+        });
+        return text.append('.').toString();
+    }
+}
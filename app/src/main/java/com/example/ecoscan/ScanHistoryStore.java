@@ -0,0 +1,189 @@
+package com.example.ecoscan;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Log binário append-only do histórico de análises, com registros de tamanho fixo
+ * gravados por memory-map. O arquivo é mapeado em janelas de {@link #WINDOW_BYTES}, então
+ * o uso de memória não cresce com o número de registros.
+ *
+ * <p>Cada registro tem um magic e um CRC32: ao abrir, o log é truncado no primeiro
+ * registro inválido, descartando uma escrita interrompida por crash. Não é thread-safe;
+ * o app usa uma única thread de I/O (ver {@link ScanHistory}).
+ */
+final class ScanHistoryStore implements Closeable {
+
+    static final class Record {
+        long timestampMs;
+        int labelIndex;
+        float confidence;
+        float left;
+        float top;
+        float right;
+        float bottom;
+        /** Referência opcional a uma miniatura; 0 quando não há. */
+        long thumbnailId;
+    }
+
+    interface RecordVisitor {
+        /** @return {@code false} para parar a iteração */
+        boolean visit(long index, Record record);
+    }
+
+    static final int RECORD_BYTES = 48;
+    private static final int RECORD_MAGIC = 0x45535231; // "ESR1"
+    private static final int PAYLOAD_BYTES = RECORD_BYTES - 8;
+    static final int WINDOW_BYTES = RECORD_BYTES * 16 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int flushEvery;
+    private final CRC32 crc = new CRC32();
+    private final byte[] payload = new byte[PAYLOAD_BYTES];
+
+    private MappedByteBuffer window;
+    private long windowStart = -1;
+    private boolean windowWritable;
+    private long recordCount;
+    private int unflushed;
+
+    /** @param flushEvery quantos registros acumular antes de um {@code force()} */
+    ScanHistoryStore(File path, int flushEvery) throws IOException {
+        this.flushEvery = flushEvery;
+        file = new RandomAccessFile(path, "rw");
+        channel = file.getChannel();
+        recover();
+    }
+
+    private void recover() throws IOException {
+        long candidates = channel.size() / RECORD_BYTES;
+        Record scratch = new Record();
+        long valid = 0;
+        while (valid < candidates && read(valid, scratch)) {
+            valid++;
+        }
+        recordCount = valid;
+        // Remove o registro parcial/corrompido e qualquer lixo depois dele.
+        if (channel.size() != valid * RECORD_BYTES) {
+            window = null;
+            windowStart = -1;
+            channel.truncate(valid * RECORD_BYTES);
+        }
+    }
+
+    void append(Record record) throws IOException {
+        long offset = recordCount * RECORD_BYTES;
+        MappedByteBuffer buffer = mapFor(offset, true);
+        int position = (int) (offset - windowStart);
+
+        buffer.position(position + 8);
+        buffer.putLong(record.timestampMs);
+        buffer.putInt(record.labelIndex);
+        buffer.putFloat(record.confidence);
+        buffer.putFloat(record.left);
+        buffer.putFloat(record.top);
+        buffer.putFloat(record.right);
+        buffer.putFloat(record.bottom);
+        buffer.putLong(record.thumbnailId);
+
+        buffer.position(position + 8);
+        buffer.get(payload);
+        crc.reset();
+        crc.update(payload);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        // O magic é gravado por último: um registro sem magic é tratado como não escrito.
+        buffer.putInt(position, RECORD_MAGIC);
+
+        recordCount++;
+        if (++unflushed >= flushEvery) {
+            flush();
+        }
+    }
+
+    void flush() {
+        if (window != null && windowWritable && unflushed > 0) {
+            window.force();
+        }
+        unflushed = 0;
+    }
+
+    long size() {
+        return recordCount;
+    }
+
+    /** Lê o registro {@code index} em {@code into}; retorna {@code false} se ele for inválido. */
+    boolean read(long index, Record into) throws IOException {
+        long offset = index * RECORD_BYTES;
+        MappedByteBuffer buffer = mapFor(offset, false);
+        int position = (int) (offset - windowStart);
+        if (buffer.getInt(position) != RECORD_MAGIC) return false;
+
+        buffer.position(position + 8);
+        buffer.get(payload);
+        crc.reset();
+        crc.update(payload);
+        if (buffer.getInt(position + 4) != (int) crc.getValue()) return false;
+
+        buffer.position(position + 8);
+        into.timestampMs = buffer.getLong();
+        into.labelIndex = buffer.getInt();
+        into.confidence = buffer.getFloat();
+        into.left = buffer.getFloat();
+        into.top = buffer.getFloat();
+        into.right = buffer.getFloat();
+        into.bottom = buffer.getFloat();
+        into.thumbnailId = buffer.getLong();
+        return true;
+    }
+
+    /** Do mais antigo para o mais novo, reutilizando o mesmo {@link Record}. */
+    void forEach(RecordVisitor visitor) throws IOException {
+        Record record = new Record();
+        for (long i = 0; i < recordCount; i++) {
+            if (read(i, record) && !visitor.visit(i, record)) return;
+        }
+    }
+
+    /** Do mais novo para o mais antigo, reutilizando o mesmo {@link Record}. */
+    void forEachReverse(RecordVisitor visitor) throws IOException {
+        Record record = new Record();
+        for (long i = recordCount - 1; i >= 0; i--) {
+            if (read(i, record) && !visitor.visit(i, record)) return;
+        }
+    }
+
+    private MappedByteBuffer mapFor(long offset, boolean write) throws IOException {
+        long start = (offset / WINDOW_BYTES) * WINDOW_BYTES;
+        if (window == null || start != windowStart || (write && !windowWritable)) {
+            flush();
+            if (write) {
+                // Cresce o arquivo só até o fim da janela; o mapeamento READ_WRITE estende o arquivo.
+                window = channel.map(FileChannel.MapMode.READ_WRITE, start, WINDOW_BYTES);
+            } else {
+                long length = Math.min(WINDOW_BYTES, Math.max(channel.size(), recordCount * RECORD_BYTES) - start);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(length, RECORD_BYTES));
+            }
+            window.order(ByteOrder.LITTLE_ENDIAN);
+            windowStart = start;
+            windowWritable = write;
+        }
+        return window;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        window = null;
+        // Remove a área pré-alocada pelo mapeamento além do último registro.
+        channel.truncate(recordCount * RECORD_BYTES);
+        channel.close();
+        file.close();
+    }
+}
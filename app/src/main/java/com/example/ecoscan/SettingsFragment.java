@@ -2,24 +2,25 @@ package com.example.ecoscan;
 
 import android.Manifest;
 import android.content.ContentResolver;
+import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.content.res.AssetManager;
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.ImageDecoder;
-import android.graphics.Paint;
-import android.graphics.RectF;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
 import android.provider.MediaStore;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.FrameLayout;
 import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -28,26 +29,21 @@ import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.widget.SwitchCompat;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
 import androidx.fragment.app.Fragment;
 
-import org.tensorflow.lite.Interpreter;
-import org.tensorflow.lite.support.common.FileUtil;
-import org.tensorflow.lite.support.common.ops.NormalizeOp;
-import org.tensorflow.lite.support.image.ImageProcessor;
-import org.tensorflow.lite.support.image.TensorImage;
-import org.tensorflow.lite.support.image.ops.ResizeOp;
+import com.example.ecoscan.StageMetrics.Stage;
+import com.example.ecoscan.core.Detection;
 
-import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.ByteBuffer;
-import java.nio.MappedByteBuffer;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -55,49 +51,85 @@ import java.util.Locale;
 public class SettingsFragment extends Fragment {
 
     private static final String TAG = "EcoScanApp_Experiment";
-    private static final String MODEL_FILE = "best.tflite";
-    private static final String LABEL_FILE = "labels.txt";
     private static final float CONFIDENCE_THRESHOLD = 0.2f;
     private static final int INPUT_SIZE = 640;
+    private static final int HISTORY_RECENT = 5;
 
     private ImageView imageView;
+    private DetectionOverlayView detectionOverlay;
     private Button buttonCamera;
     private Button buttonGallery;
     private Button buttonAnalyze;
     private TextView textViewResult;
-
-    private Interpreter interpreter;
-    private List<String> labels = new ArrayList<>();
-    private int inputWidth;
-    private int inputHeight;
-    private int outputNumClasses;
-    private int outputNumProposals;
-
-    private ImageProcessor imageProcessor;
+    private TextView textViewBackend;
+    private Button buttonCalibrate;
+    private SwitchCompat switchMetrics;
+    private TextView textViewMetrics;
+    private Spinner spinnerModel;
+    private TextView textViewModel;
+    private Button buttonCompareModels;
+    private TextView textViewComparison;
+    private SwitchCompat switchTiled;
+    private SwitchCompat switchCascade;
+    private TextView textViewTileConfig;
+
+    private DetectorEngine engine;
+    private InferenceExecutor.Task engineTask;
 
     private ActivityResultLauncher<Intent> cameraLauncher;
     private ActivityResultLauncher<Intent> galleryLauncher;
     private ActivityResultLauncher<String> permissionLauncher;
 
-    private Bitmap bitmapToAnalyze;
+    private ImageLoader.InferenceImage imageToAnalyze;
+    private Bitmap bitmapToDisplay;
     private Uri cameraImageUri;
-
-    private Bitmap bitmapWithDetections;
+    /** Foto carregada; o modo em blocos decodifica regiões direto dela. */
+    private Uri imageUri;
+    private TiledDetector tiledDetector;
+    private TiledDetector.Config tileConfig;
+
+    private List<Detection> lastDetections = Collections.emptyList();
+    private InferenceExecutor.Task detectionTask;
+    private InferenceExecutor.Task exportTask;
+    private InferenceExecutor.Task backendTask;
+    private InferenceExecutor.Task modelInfoTask;
+    private InferenceExecutor.Task compareTask;
+    /** Último resumo do {@link ScanHistory}, lido em segundo plano; entra também na exportação. */
+    private String historySummary = "";
+    // Descarta resumos que chegam depois de um showMetrics mais novo.
+    private int metricsGeneration;
+
+    private List<ModelRegistry.Model> models = Collections.emptyList();
+    /** Modelo escolhido na lista, mesmo que o engine dele ainda esteja carregando. */
+    private String currentModelId;
 
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setupLaunchers();
-        try {
-            loadLabels();
-            loadModel();
-            setupImageProcessor();
-            Log.d(TAG, "TensorFlow Lite (Experimento) inicializado.");
-        } catch (IOException e) {
-            Log.e(TAG, "Falha ao inicializar o TensorFlow Lite.", e);
-            Toast.makeText(requireContext(), "Não foi possível carregar o modelo ou labels.", Toast.LENGTH_LONG).show();
-        }
+        acquireEngine();
+    }
+
+    private void acquireEngine() {
+        engineTask = DetectorEngine.acquireAsync(requireContext(), new InferenceExecutor.Callback<DetectorEngine>() {
+            @Override
+            public void onResult(DetectorEngine loaded, InferenceExecutor.Timing timing) {
+                engineTask = null;
+                engine = loaded;
+                Log.d(TAG, "TensorFlow Lite (Experimento) inicializado com " + loaded.getModelInfo().name + ".");
+                if (getView() == null) return;
+                buttonAnalyze.setEnabled(imageToAnalyze != null);
+                showBackendInfo();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                engineTask = null;
+                Log.e(TAG, "Falha ao inicializar o TensorFlow Lite.", e);
+                Toast.makeText(requireContext(), "Não foi possível carregar o modelo ou labels.", Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
     @Nullable
@@ -110,6 +142,7 @@ public class SettingsFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
         imageView = view.findViewById(R.id.imageView);
+        detectionOverlay = view.findViewById(R.id.detectionOverlay);
         buttonCamera = view.findViewById(R.id.buttonCamera);
         buttonGallery = view.findViewById(R.id.buttonGallery);
         buttonAnalyze = view.findViewById(R.id.buttonAnalyze);
@@ -118,24 +151,72 @@ public class SettingsFragment extends Fragment {
         buttonCamera.setOnClickListener(v -> checkCameraPermissionAndOpenCamera());
         buttonGallery.setOnClickListener(v -> openGallery());
         buttonAnalyze.setOnClickListener(v -> analyzeImage());
-        buttonAnalyze.setEnabled(false);
+        buttonAnalyze.setEnabled(engine != null && imageToAnalyze != null);
+
+        textViewBackend = view.findViewById(R.id.textViewBackend);
+        buttonCalibrate = view.findViewById(R.id.buttonCalibrate);
+        buttonCalibrate.setOnClickListener(v -> recalibrate());
+        showBackendInfo();
+
+        switchMetrics = view.findViewById(R.id.switchMetrics);
+        textViewMetrics = view.findViewById(R.id.textViewMetrics);
+        switchMetrics.setChecked(StageMetrics.isEnabled());
+        switchMetrics.setOnCheckedChangeListener((button, checked) -> {
+            StageMetrics.setEnabled(checked);
+            showMetrics();
+        });
+        view.findViewById(R.id.buttonExportMetrics).setOnClickListener(v -> exportMetrics());
+        showMetrics();
+
+        spinnerModel = view.findViewById(R.id.spinnerModel);
+        textViewModel = view.findViewById(R.id.textViewModel);
+        buttonCompareModels = view.findViewById(R.id.buttonCompareModels);
+        textViewComparison = view.findViewById(R.id.textViewComparison);
+        buttonCompareModels.setOnClickListener(v -> pickModelToCompare());
+        setupModelPicker();
+
+        switchTiled = view.findViewById(R.id.switchTiled);
+        textViewTileConfig = view.findViewById(R.id.textViewTileConfig);
+        tileConfig = TiledDetector.Config.load(requireContext());
+        switchTiled.setChecked(tileConfig.enabled);
+        switchTiled.setOnCheckedChangeListener((button, checked) -> {
+            tileConfig = tileConfig.withEnabled(checked);
+            tileConfig.save(requireContext());
+            showTileConfig();
+        });
+        textViewTileConfig.setOnClickListener(v -> editTileConfig());
+        showTileConfig();
+
+        switchCascade = view.findViewById(R.id.switchCascade);
+        switchCascade.setChecked(DetectorEngine.isCascadeEnabled(requireContext()));
+        switchCascade.setOnCheckedChangeListener((button, checked) ->
+                DetectorEngine.setCascadeEnabled(requireContext(), checked));
 
         imageView.setOnClickListener(v -> {
 
-            if (bitmapWithDetections != null) {
-                showImageInDialog(bitmapWithDetections);
+            if (!lastDetections.isEmpty()) {
+                showImageInDialog(bitmapToDisplay, lastDetections);
             }
         });
+        imageView.setOnLongClickListener(v -> {
+            if (lastDetections.isEmpty()) return false;
+            exportAnnotatedImage();
+            return true;
+        });
     }
 
 
     private void analyzeImage() {
-        if (bitmapToAnalyze != null) {
+        if (imageToAnalyze != null) {
             textViewResult.setText("Analisando...");
             Log.d(TAG, "Iniciando detecção (Experimento)...");
             imageView.setScaleType(ImageView.ScaleType.FIT_CENTER);
-            imageView.setImageBitmap(bitmapToAnalyze);
-            detectObjects(bitmapToAnalyze);
+            imageView.setImageBitmap(bitmapToDisplay);
+            if (tileConfig.enabled && imageUri != null) {
+                detectTiled(imageUri, bitmapToDisplay);
+            } else {
+                detectObjects(imageToAnalyze, bitmapToDisplay);
+            }
         } else {
             Toast.makeText(requireContext(), "Selecione uma imagem da câmera ou galeria primeiro.", Toast.LENGTH_SHORT).show();
             textViewResult.setText("Nenhuma imagem selecionada para análise.");
@@ -143,20 +224,33 @@ public class SettingsFragment extends Fragment {
     }
 
 
-    private Bitmap loadBitmapFromUri(Uri uri) throws IOException {
+    private void loadBitmapsFromUri(Uri uri) throws IOException {
         ContentResolver resolver = requireContext().getContentResolver();
-        ImageDecoder.Source source = ImageDecoder.createSource(resolver, uri);
+        int inputWidth = engine != null ? engine.getInputWidth() : INPUT_SIZE;
+        int inputHeight = engine != null ? engine.getInputHeight() : INPUT_SIZE;
+        releaseImageToAnalyze();
+        StageMetrics.begin(Stage.LOAD_BITMAP);
+        imageToAnalyze = ImageLoader.decodeForInference(resolver, uri, inputWidth, inputHeight,
+                BitmapPool.get(requireContext()));
+        bitmapToDisplay = ImageLoader.decodeForDisplay(resolver, uri, ImageLoader.DISPLAY_MAX_SIDE);
+        StageMetrics.end(Stage.LOAD_BITMAP);
+        imageUri = uri;
+    }
 
-        return ImageDecoder.decodeBitmap(source, (decoder, info, s) -> {
-            decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
-            decoder.setMutableRequired(true);
-        });
+    /** Devolve o bitmap ao pool depois de qualquer detecção ainda na fila que o use. */
+    private void releaseImageToAnalyze() {
+        if (imageToAnalyze == null) return;
+        Bitmap bitmap = imageToAnalyze.bitmap;
+        imageToAnalyze = null;
+        BitmapPool pool = BitmapPool.get(requireContext());
+        InferenceExecutor.get().execute(() -> pool.release(bitmap));
     }
 
 
     private Uri createImageUri() {
-        File imagePath = new File(requireContext().getCacheDir(), "images");
+        File imagePath = CacheJanitor.imagesDir(requireContext());
         if (!imagePath.exists()) imagePath.mkdirs();
+        CacheJanitor.trimAsync(requireContext());
 
         String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
         File newFile = new File(imagePath, "IMG_" + timeStamp + ".jpg");
@@ -173,13 +267,14 @@ public class SettingsFragment extends Fragment {
         cameraLauncher = registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), result -> {
             if (result.getResultCode() == android.app.Activity.RESULT_OK) {
                 if (cameraImageUri != null) {
+                    cancelDetection();
                     try {
-                        bitmapToAnalyze = loadBitmapFromUri(cameraImageUri);
-                        bitmapWithDetections = null;
+                        loadBitmapsFromUri(cameraImageUri);
+                        clearDetections();
                         imageView.setScaleType(ImageView.ScaleType.CENTER_CROP);
-                        imageView.setImageBitmap(bitmapToAnalyze);
+                        imageView.setImageBitmap(bitmapToDisplay);
                         textViewResult.setText("Imagem carregada. Clique em 'Analisar'.");
-                        buttonAnalyze.setEnabled(true);
+                        buttonAnalyze.setEnabled(engine != null);
                     } catch (IOException e) {
                         Log.e(TAG, "Erro ao carregar imagem da câmera (Uri).", e);
                         textViewResult.setText("Erro ao carregar foto.");
@@ -192,13 +287,14 @@ public class SettingsFragment extends Fragment {
             if (result.getResultCode() == android.app.Activity.RESULT_OK && result.getData() != null) {
                 Uri imageUri = result.getData().getData();
                 if (imageUri != null) {
+                    cancelDetection();
                     try {
-                        bitmapToAnalyze = loadBitmapFromUri(imageUri);
-                        bitmapWithDetections = null;
+                        loadBitmapsFromUri(imageUri);
+                        clearDetections();
                         imageView.setScaleType(ImageView.ScaleType.CENTER_CROP);
-                        imageView.setImageBitmap(bitmapToAnalyze);
+                        imageView.setImageBitmap(bitmapToDisplay);
                         textViewResult.setText("Imagem carregada. Clique em 'Analisar'.");
-                        buttonAnalyze.setEnabled(true);
+                        buttonAnalyze.setEnabled(engine != null);
                     } catch (IOException e) {
                         Log.e(TAG, "Erro ao carregar imagem da galeria.", e);
                         textViewResult.setText("Erro ao carregar imagem da galeria.");
@@ -230,273 +326,452 @@ public class SettingsFragment extends Fragment {
 
 
 
-    private void loadLabels() throws IOException {
-        AssetManager assetManager = requireContext().getAssets();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(assetManager.open(LABEL_FILE)));
-        String line;
-        while ((line = reader.readLine()) != null) {
-            labels.add(line);
+    private void detectObjects(ImageLoader.InferenceImage image, Bitmap displayBitmap) {
+        if (engine == null || engine.getLabels().isEmpty()) {
+            Toast.makeText(requireContext(), "Detector não foi inicializado.", Toast.LENGTH_SHORT).show();
+            return;
         }
-        reader.close();
-    }
 
-    private void loadModel() throws IOException {
-        MappedByteBuffer tfliteModel = FileUtil.loadMappedFile(requireContext(), MODEL_FILE);
-        Interpreter.Options options = new Interpreter.Options();
-        options.setNumThreads(4);
-        interpreter = new Interpreter(tfliteModel, options);
-        int[] inputShape = interpreter.getInputTensor(0).shape();
-        inputWidth = inputShape[1];
-        inputHeight = inputShape[2];
-        int[] outputShape = interpreter.getOutputTensor(0).shape();
-        outputNumClasses = outputShape[1] - 4;
-        outputNumProposals = outputShape[2];
-    }
+        cancelDetection();
+        detectionTask = InferenceExecutor.get().submit(
+                () -> engine.detectAdaptive(image.pixels(), CONFIDENCE_THRESHOLD, 1f), new InferenceExecutor.Callback<List<Detection>>() {
+            @Override
+            public void onResult(List<Detection> result, InferenceExecutor.Timing timing) {
+                detectionTask = null;
+                Log.d(TAG, String.format(Locale.US, "Detecção concluída: fila %d ms, processamento %d ms.",
+                        timing.queueWaitMs, timing.computeMs));
+                displayAllDetections(result, displayBitmap, timing);
+                showMetrics();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                detectionTask = null;
+                Log.e(TAG, "Erro na execução do modelo TFLite.", e);
 
-    private void setupImageProcessor() {
-        imageProcessor = new ImageProcessor.Builder()
-                .add(new ResizeOp(inputHeight, inputWidth, ResizeOp.ResizeMethod.BILINEAR))
-                .add(new NormalizeOp(0f, 255f))
-                .build();
+                Toast.makeText(requireContext(), "Erro na execução do modelo.", Toast.LENGTH_LONG).show();
+                textViewResult.setText("");
+            }
+        });
     }
 
-    private void detectObjects(Bitmap bitmap) {
-        if (interpreter == null || labels.isEmpty()) {
+    private void detectTiled(Uri uri, Bitmap displayBitmap) {
+        if (engine == null || engine.getLabels().isEmpty()) {
             Toast.makeText(requireContext(), "Detector não foi inicializado.", Toast.LENGTH_SHORT).show();
             return;
         }
+        if (tiledDetector == null || !tiledDetector.isFor(engine)) {
+            releaseTiledDetector();
+            tiledDetector = new TiledDetector(requireContext(), engine);
+        }
 
-        TensorImage tensorImage = TensorImage.fromBitmap(bitmap);
-        tensorImage = imageProcessor.process(tensorImage);
-        ByteBuffer inputBuffer = tensorImage.getBuffer();
+        cancelDetection();
+        TiledDetector detector = tiledDetector;
+        TiledDetector.Config config = tileConfig;
+        detectionTask = InferenceExecutor.get().submit(() -> detector.detect(uri, config, CONFIDENCE_THRESHOLD),
+                new InferenceExecutor.Callback<TiledDetector.Result>() {
+                    @Override
+                    public void onResult(TiledDetector.Result result, InferenceExecutor.Timing timing) {
+                        detectionTask = null;
+                        displayAllDetections(result.detections, displayBitmap, timing);
+                        textViewResult.append(String.format(Locale.US, "\nBlocos analisados: %d de %d%s.",
+                                result.tilesRun, result.tilesPlanned,
+                                result.tilesRun < result.tilesPlanned ? " (limite de tempo)" : ""));
+                        showMetrics();
+                    }
 
-        float[][][] outputArray = new float[1][4 + outputNumClasses][outputNumProposals];
+                    @Override
+                    public void onError(Exception e) {
+                        detectionTask = null;
+                        Log.e(TAG, "Erro na análise em blocos.", e);
+                        Toast.makeText(requireContext(), "Erro na análise em blocos.", Toast.LENGTH_LONG).show();
+                        textViewResult.setText("");
+                    }
+                });
+    }
 
-        try {
-            interpreter.run(inputBuffer, outputArray);
-        } catch (Exception e) {
-            Log.e(TAG, "Erro na execução do modelo TFLite.", e);
+    /** Depois de qualquer análise em blocos ainda na fila. */
+    private void releaseTiledDetector() {
+        if (tiledDetector == null) return;
+        TiledDetector detector = tiledDetector;
+        tiledDetector = null;
+        InferenceExecutor.get().execute(detector::release);
+    }
 
-            Toast.makeText(requireContext(), "Erro na execução do modelo.", Toast.LENGTH_LONG).show();
-            return;
-        }
+    private void showTileConfig() {
+        textViewTileConfig.setText(tileConfig + " (toque para mudar)");
+        textViewTileConfig.setEnabled(tileConfig.enabled);
+    }
 
-        List<Detection> detections = postProcessYolo(outputArray[0], bitmap.getWidth(), bitmap.getHeight());
-        displayAllDetections(detections, bitmap);
+    private void editTileConfig() {
+        int[] tileOptions = {2, 3, 4};
+        int[] overlapPercents = {10, 20, 30};
+        long[] budgetOptions = {1000, 2000, 5000, 0};
+        Spinner tiles = optionSpinner(new String[]{"2x2 blocos", "3x3 blocos", "4x4 blocos"});
+        Spinner overlap = optionSpinner(new String[]{"sobreposição 10%", "sobreposição 20%", "sobreposição 30%"});
+        Spinner budget = optionSpinner(new String[]{"limite 1 s", "limite 2 s", "limite 5 s", "sem limite de tempo"});
+        tiles.setSelection(indexOf(tileOptions, tileConfig.tilesPerSide));
+        overlap.setSelection(indexOf(overlapPercents, Math.round(tileConfig.overlap * 100)));
+        budget.setSelection(indexOf(budgetOptions, tileConfig.latencyBudgetMs));
+
+        LinearLayout content = new LinearLayout(requireContext());
+        content.setOrientation(LinearLayout.VERTICAL);
+        int padding = Math.round(24 * getResources().getDisplayMetrics().density);
+        content.setPadding(padding, padding / 2, padding, 0);
+        content.addView(tiles);
+        content.addView(overlap);
+        content.addView(budget);
+
+        new AlertDialog.Builder(requireContext())
+                .setTitle(R.string.analise_em_blocos)
+                .setView(content)
+                .setPositiveButton(android.R.string.ok, (dialog, which) -> {
+                    tileConfig = new TiledDetector.Config(tileConfig.enabled,
+                            tileOptions[tiles.getSelectedItemPosition()],
+                            overlapPercents[overlap.getSelectedItemPosition()] / 100f,
+                            budgetOptions[budget.getSelectedItemPosition()]);
+                    tileConfig.save(requireContext());
+                    showTileConfig();
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
     }
 
+    private Spinner optionSpinner(String[] options) {
+        Spinner spinner = new Spinner(requireContext());
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(requireContext(), android.R.layout.simple_spinner_item, options);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinner.setAdapter(adapter);
+        return spinner;
+    }
 
-    private static class Detection {
-        RectF boundingBox;
-        String label;
-        float confidence;
-        Detection(RectF boundingBox, String label, float confidence) {
-            this.boundingBox = boundingBox;
-            this.label = label;
-            this.confidence = confidence;
+    private static int indexOf(int[] options, int value) {
+        for (int i = 0; i < options.length; i++) {
+            if (options[i] == value) return i;
         }
+        return 0;
     }
 
+    private static int indexOf(long[] options, long value) {
+        for (int i = 0; i < options.length; i++) {
+            if (options[i] == value) return i;
+        }
+        return 0;
+    }
 
-    private List<Detection> postProcessYolo(float[][] output, int originalWidth, int originalHeight) {
-        float[][] transposedOutput = new float[outputNumProposals][4 + outputNumClasses];
-        for (int i = 0; i < 4 + outputNumClasses; i++) {
-            for (int j = 0; j < outputNumProposals; j++) {
-                transposedOutput[j][i] = output[i][j];
+    private void setupModelPicker() {
+        models = ModelRegistry.discover(requireContext());
+        ArrayAdapter<ModelRegistry.Model> adapter =
+                new ArrayAdapter<>(requireContext(), android.R.layout.simple_spinner_item, models);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerModel.setAdapter(adapter);
+        ModelRegistry.Model selected = ModelRegistry.selected(requireContext(), models);
+        if (selected == null) return;
+        currentModelId = selected.id;
+        spinnerModel.setSelection(models.indexOf(selected));
+        spinnerModel.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                switchModel(models.get(position));
             }
-        }
 
-        List<Detection> allDetections = new ArrayList<>();
-        for (int i = 0; i < outputNumProposals; i++) {
-            float[] proposal = transposedOutput[i];
-            int bestClassIndex = -1;
-            float maxScore = 0.0f;
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+    }
 
+    /** Troca o modelo do app inteiro; o engine novo carrega em segundo plano. */
+    private void switchModel(ModelRegistry.Model model) {
+        showModelInfo(model);
+        if (model.id.equals(currentModelId)) return;
+        currentModelId = model.id;
+        Log.d(TAG, "Trocando para o modelo " + model.name + ".");
+        cancelDetection();
+        clearDetections();
+        if (backendTask != null) {
+            backendTask.cancel();
+            backendTask = null;
+            buttonCalibrate.setEnabled(true);
+        }
+        DetectorEngine.select(requireContext(), model);
+        if (engineTask != null) engineTask.cancel();
+        if (engine != null) {
+            engine.release();
+            engine = null;
+        }
+        buttonAnalyze.setEnabled(false);
+        textViewBackend.setText("Carregando " + model.name + "...");
+        acquireEngine();
+    }
 
-            for (int j = 4; j < 4 + outputNumClasses; j++) {
-                if (proposal[j] > maxScore) {
-                    maxScore = proposal[j];
-                    bestClassIndex = j - 4;
-                }
-            }
+    private void showModelInfo(ModelRegistry.Model model) {
+        if (modelInfoTask != null) modelInfoTask.cancel();
+        Context appContext = requireContext().getApplicationContext();
+        textViewModel.setText("");
+        modelInfoTask = InferenceExecutor.get().submit(() -> ModelRegistry.describeTensors(appContext, model),
+                new InferenceExecutor.Callback<String>() {
+                    @Override
+                    public void onResult(String text, InferenceExecutor.Timing timing) {
+                        modelInfoTask = null;
+                        textViewModel.setText(text);
+                    }
 
-            if (maxScore > CONFIDENCE_THRESHOLD) {
+                    @Override
+                    public void onError(Exception e) {
+                        modelInfoTask = null;
+                        Log.e(TAG, "Modelo inválido: " + model.name, e);
+                        textViewModel.setText("Não foi possível ler o modelo.");
+                    }
+                });
+    }
 
-                float cx = proposal[0];
-                float cy = proposal[1];
-                float w = proposal[2];
-                float h = proposal[3];
+    private void pickModelToCompare() {
+        if (engine == null || imageToAnalyze == null) {
+            Toast.makeText(requireContext(), "Carregue uma imagem primeiro.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        ModelRegistry.Model current = engine.getModelInfo();
+        List<ModelRegistry.Model> others = new ArrayList<>();
+        for (ModelRegistry.Model model : models) {
+            if (!model.id.equals(current.id)) others.add(model);
+        }
+        if (others.isEmpty()) {
+            Toast.makeText(requireContext(), "Copie outro .tflite para files/" + ModelRegistry.MODELS_DIR
+                    + " para comparar.", Toast.LENGTH_LONG).show();
+            return;
+        }
+        String[] names = new String[others.size()];
+        for (int i = 0; i < names.length; i++) names[i] = others.get(i).toString();
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Comparar " + current.name + " com")
+                .setItems(names, (dialog, which) -> compareModels(current, others.get(which)))
+                .show();
+    }
 
+    private void compareModels(ModelRegistry.Model a, ModelRegistry.Model b) {
+        if (compareTask != null || imageToAnalyze == null) return;
+        ImageLoader.InferenceImage image = imageToAnalyze;
+        Context appContext = requireContext().getApplicationContext();
+        buttonCompareModels.setEnabled(false);
+        textViewComparison.setText("Comparando " + a.name + " e " + b.name + "...");
+        compareTask = InferenceExecutor.get().submit(
+                () -> ModelComparison.compare(appContext, a, b, image.pixels(), CONFIDENCE_THRESHOLD, 1f),
+                new InferenceExecutor.Callback<String>() {
+                    @Override
+                    public void onResult(String text, InferenceExecutor.Timing timing) {
+                        compareTask = null;
+                        buttonCompareModels.setEnabled(true);
+                        textViewComparison.setText(text);
+                    }
 
-                float left = cx - (w / 2f);
-                float top = cy - (h / 2f);
-                float right = cx + (w / 2f);
-                float bottom = cy + (h / 2f);
+                    @Override
+                    public void onError(Exception e) {
+                        compareTask = null;
+                        buttonCompareModels.setEnabled(true);
+                        Log.e(TAG, "Erro na comparação de modelos.", e);
+                        textViewComparison.setText("Falha na comparação.");
+                    }
+                });
+    }
 
-                String label = (bestClassIndex >= 0 && bestClassIndex < labels.size()) ? labels.get(bestClassIndex) : "Desconhecido";
+    /** Roda na fila de inferência, então mostra o resultado de uma calibração ainda pendente. */
+    private void showBackendInfo() {
+        if (engine == null) return;
+        textViewBackend.setText("Backend: aguardando calibração...");
+        backendTask = InferenceExecutor.get().submit(
+                () -> describeBackend(engine.getInterpreterConfig(), engine.getCalibrationReport()),
+                new InferenceExecutor.Callback<String>() {
+                    @Override
+                    public void onResult(String text, InferenceExecutor.Timing timing) {
+                        backendTask = null;
+                        textViewBackend.setText(text);
+                    }
 
+                    @Override
+                    public void onError(Exception e) {
+                        backendTask = null;
+                        textViewBackend.setText("");
+                    }
+                });
+    }
 
-                RectF boundingBox = new RectF(left, top, right, bottom);
+    private void recalibrate() {
+        if (engine == null || backendTask != null) return;
+        buttonCalibrate.setEnabled(false);
+        textViewBackend.setText("Calibrando...");
+        backendTask = InferenceExecutor.get().submit(() -> {
+            InterpreterAutotuner.Result result = engine.calibrate();
+            return describeBackend(result.best, result.describe());
+        }, new InferenceExecutor.Callback<String>() {
+            @Override
+            public void onResult(String text, InferenceExecutor.Timing timing) {
+                backendTask = null;
+                buttonCalibrate.setEnabled(true);
+                textViewBackend.setText(text);
+            }
 
-                allDetections.add(new Detection(boundingBox, label, maxScore));
+            @Override
+            public void onError(Exception e) {
+                backendTask = null;
+                buttonCalibrate.setEnabled(true);
+                Log.e(TAG, "Erro na calibração.", e);
+                textViewBackend.setText("Falha na calibração.");
             }
+        });
+    }
+
+    private static String describeBackend(InterpreterConfig config, String report) {
+        String text = "Backend: " + config;
+        return report.isEmpty() ? text : text + "\nLatência p50 por configuração:\n" + report;
+    }
+
+    private void showMetrics() {
+        String text = StageMetrics.describe();
+        if (text.isEmpty()) {
+            text = StageMetrics.isEnabled() ? "Nenhuma análise medida ainda." : "";
         }
-        return nonMaxSuppression(allDetections);
-    }
-
-    private List<Detection> nonMaxSuppression(List<Detection> allDetections) {
-        List<Detection> nmsList = new ArrayList<>();
-        float IOU_THRESHOLD = 0.45f;
-        allDetections.sort(Comparator.comparingDouble((Detection d) -> d.confidence).reversed());
-        for (Detection detection : allDetections) {
-            boolean keep = true;
-            for (Detection nmsDetection : nmsList) {
-                float iou = calculateIoU(detection.boundingBox, nmsDetection.boundingBox);
-                if (iou > IOU_THRESHOLD) {
-                    keep = false;
-                    break;
-                }
-            }
-            if (keep) nmsList.add(detection);
+        if (StageMetrics.isEnabled()) {
+            text += "\n" + BitmapPool.get(requireContext()).describe()
+                    + "\n" + CacheJanitor.describe(requireContext());
+        }
+        String cascade = engine != null ? engine.getCascade().describe() : "";
+        if (!cascade.isEmpty()) {
+            text += (text.isEmpty() ? "" : "\n") + cascade;
+        }
+        textViewMetrics.setText(text);
+        int generation = ++metricsGeneration;
+        if (StageMetrics.isEnabled() && engine != null) {
+            ScanHistory.get(requireContext()).describe(engine.getLabels(), HISTORY_RECENT, summary -> {
+                if (generation != metricsGeneration || getView() == null) return;
+                historySummary = summary;
+                if (!summary.isEmpty()) textViewMetrics.append("\n" + summary);
+            });
         }
-        return nmsList;
     }
 
-    private float calculateIoU(RectF boxA, RectF boxB) {
-        float xA = Math.max(boxA.left, boxB.left), yA = Math.max(boxA.top, boxB.top);
-        float xB = Math.min(boxA.right, boxB.right), yB = Math.min(boxA.bottom, boxB.bottom);
-        float interArea = Math.max(0, xB - xA) * Math.max(0, yB - yA);
-        float boxAArea = (boxA.right - boxA.left) * (boxA.bottom - boxA.top);
-        float boxBArea = (boxB.right - boxB.left) * (boxB.bottom - boxB.top);
-        float unionArea = (boxAArea + boxBArea - interArea);
-        return interArea / unionArea;
+    private void exportMetrics() {
+        String metrics = StageMetrics.describe();
+        if (metrics.isEmpty()) {
+            Toast.makeText(requireContext(), "Ligue a medição e analise algumas imagens primeiro.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String text = "EcoScan - tempo por etapa\n"
+                + "Aparelho: " + Build.MANUFACTURER + " " + Build.MODEL + " (Android " + Build.VERSION.RELEASE + ")\n"
+                + (engine != null ? "Modelo: " + engine.getModelInfo() + "\n" : "")
+                + (engine != null ? "Backend: " + engine.getInterpreterConfig() + "\n" : "")
+                + "\n" + metrics
+                + "\n" + BitmapPool.get(requireContext()).describe()
+                + "\n" + CacheJanitor.describe(requireContext())
+                + (engine != null ? "\n" + engine.getCascade().describe() : "")
+                + (historySummary.isEmpty() ? "" : "\n" + historySummary);
+        Intent shareIntent = new Intent(Intent.ACTION_SEND);
+        shareIntent.setType("text/plain");
+        shareIntent.putExtra(Intent.EXTRA_SUBJECT, "Métricas do EcoScan");
+        shareIntent.putExtra(Intent.EXTRA_TEXT, text);
+        startActivity(Intent.createChooser(shareIntent, "Exportar métricas"));
     }
 
+    private void cancelDetection() {
+        if (detectionTask != null) {
+            detectionTask.cancel();
+            detectionTask = null;
+        }
+    }
 
+    private void clearDetections() {
+        lastDetections = Collections.emptyList();
+        detectionOverlay.clear();
+    }
 
-    private void displayAllDetections(List<Detection> detections, Bitmap originalBitmap) {
+    private void displayAllDetections(List<Detection> detections, Bitmap originalBitmap, InferenceExecutor.Timing timing) {
+        EcoScanApplication.markFirstResult("experimento");
         if (detections.isEmpty()) {
             textViewResult.setText("Nenhum objeto reconhecido. Tente novamente.");
-            this.bitmapWithDetections = null;
+            clearDetections();
             imageView.setImageBitmap(originalBitmap);
             return;
         }
 
 
-        this.bitmapWithDetections = drawAllDetections(originalBitmap, detections);
+        lastDetections = detections;
 
         imageView.setScaleType(ImageView.ScaleType.FIT_CENTER);
-        imageView.setImageBitmap(this.bitmapWithDetections);
+        imageView.setImageBitmap(originalBitmap);
+        detectionOverlay.setImage(originalBitmap.getWidth(), originalBitmap.getHeight(), ImageView.ScaleType.FIT_CENTER);
+        detectionOverlay.setDetections(detections, 0, true);
 
-        String resultText = String.format(Locale.US, "Encontrados %d objetos.", detections.size());
+        String resultText = String.format(Locale.US, "Encontrados %d objetos. (fila %d ms, processamento %d ms)\n"
+                        + "Toque na imagem para ampliar; toque longo para exportar.",
+                detections.size(), timing.queueWaitMs, timing.computeMs);
         textViewResult.setText(resultText);
     }
 
-
-    private Bitmap drawAllDetections(Bitmap originalBitmap, List<Detection> detections) {
-        Bitmap mutableBitmap = originalBitmap.copy(Bitmap.Config.ARGB_8888, true);
-        Canvas canvas = new Canvas(mutableBitmap);
-
-        Paint boxPaint = new Paint();
-        boxPaint.setStyle(Paint.Style.STROKE);
-        boxPaint.setStrokeWidth(Math.max(mutableBitmap.getWidth(), mutableBitmap.getHeight()) / 120f);
-
-
-        float textScaleFactor = Math.max(mutableBitmap.getWidth(), mutableBitmap.getHeight()) / 600f;
-        float textSize = 30 * textScaleFactor;
-        float padding = 8 * textScaleFactor;
-
-        Paint textPaint = new Paint();
-        textPaint.setTextSize(textSize);
-        textPaint.setColor(Color.WHITE);
-        textPaint.setStyle(Paint.Style.FILL);
-        textPaint.setTextAlign(Paint.Align.LEFT);
-
-        Paint textBgPaint = new Paint();
-        textBgPaint.setStyle(Paint.Style.FILL);
-
-        int[] colors = new int[]{
-                Color.parseColor("#D32F2F"),
-                Color.parseColor("#1976D2"),
-                Color.parseColor("#FBC02D"),
-                Color.parseColor("#388E3C"),
-                Color.parseColor("#5D4037"),
-                Color.parseColor("#FF5722")
-        };
-
-        int colorIndex = 0;
-
-        Paint.FontMetrics fm = textPaint.getFontMetrics();
-        float textHeight = fm.descent - fm.ascent;
-
-
-        for (Detection detection : detections) {
-            int color = colors[colorIndex % colors.length];
-            boxPaint.setColor(color);
-            textBgPaint.setColor(color);
-            colorIndex++;
-
-            String label = String.format(Locale.US, "%s: %.1f%%",
-                    detection.label,
-                    detection.confidence * 100);
-
-
-            RectF scaledBox = new RectF(
-                    detection.boundingBox.left * originalBitmap.getWidth(),
-                    detection.boundingBox.top * originalBitmap.getHeight(),
-                    detection.boundingBox.right * originalBitmap.getWidth(),
-                    detection.boundingBox.bottom * originalBitmap.getHeight()
-            );
-
-
-            canvas.drawRect(scaledBox, boxPaint);
-
-
-            float labelWidth = textPaint.measureText(label);
-
-
-            float textBgTop = scaledBox.top - textHeight - (padding * 2);
-            float textBgBottom = scaledBox.top;
-
-
-            if (textBgTop < 0) {
-                textBgTop = scaledBox.bottom;
-                textBgBottom = scaledBox.bottom + textHeight + (padding * 2);
+    /** Única cópia em tamanho real: a imagem anotada é gerada só quando o usuário exporta. */
+    private void exportAnnotatedImage() {
+        if (exportTask != null || bitmapToDisplay == null) return;
+        Bitmap source = bitmapToDisplay;
+        File imagePath = CacheJanitor.imagesDir(requireContext());
+        CacheJanitor.trimAsync(requireContext());
+        String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
+        File file = new File(imagePath, "ECOSCAN_" + timeStamp + ".jpg");
+        Toast.makeText(requireContext(), "Gerando imagem anotada...", Toast.LENGTH_SHORT).show();
+        exportTask = InferenceExecutor.get().submit(() -> {
+            Bitmap annotated = detectionOverlay.renderAnnotated(source);
+            try {
+                if (!imagePath.exists()) imagePath.mkdirs();
+                try (OutputStream out = new FileOutputStream(file)) {
+                    annotated.compress(Bitmap.CompressFormat.JPEG, 90, out);
+                }
+            } finally {
+                annotated.recycle();
+            }
+            return file;
+        }, new InferenceExecutor.Callback<File>() {
+            @Override
+            public void onResult(File result, InferenceExecutor.Timing timing) {
+                exportTask = null;
+                Uri uri = FileProvider.getUriForFile(requireContext(), requireContext().getPackageName() + ".provider", result);
+                Intent shareIntent = new Intent(Intent.ACTION_SEND);
+                shareIntent.setType("image/jpeg");
+                shareIntent.putExtra(Intent.EXTRA_STREAM, uri);
+                shareIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                startActivity(Intent.createChooser(shareIntent, "Exportar imagem anotada"));
             }
 
-            RectF textBgRect = new RectF();
-            textBgRect.left = scaledBox.left;
-            textBgRect.top = textBgTop;
-            textBgRect.right = scaledBox.left + labelWidth + (padding * 2);
-            textBgRect.bottom = textBgBottom;
-
-
-            canvas.drawRect(textBgRect, textBgPaint);
-
-
-            float textY = textBgRect.top - fm.ascent + padding;
-
-            canvas.drawText(label,
-                    textBgRect.left + padding,
-                    textY,
-                    textPaint);
-        }
-
-        return mutableBitmap;
+            @Override
+            public void onError(Exception e) {
+                exportTask = null;
+                Log.e(TAG, "Erro ao exportar a imagem anotada.", e);
+                Toast.makeText(requireContext(), "Não foi possível exportar a imagem.", Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
 
-    private void showImageInDialog(Bitmap bitmap) {
+    private void showImageInDialog(Bitmap bitmap, List<Detection> detections) {
         if (getContext() == null) return;
 
 
         ImageView dialogImageView = new ImageView(getContext());
         dialogImageView.setImageBitmap(bitmap);
         dialogImageView.setScaleType(ImageView.ScaleType.FIT_CENTER);
+        dialogImageView.setAdjustViewBounds(true);
+
+        // Mesma imagem de fundo, caixas desenhadas por cima: nenhuma cópia do bitmap.
+        DetectionOverlayView dialogOverlay = new DetectionOverlayView(getContext());
+        dialogOverlay.setImage(bitmap.getWidth(), bitmap.getHeight(), ImageView.ScaleType.FIT_CENTER);
+        dialogOverlay.setDetections(detections, 0, true);
+
+        FrameLayout dialogContent = new FrameLayout(getContext());
+        dialogContent.addView(dialogImageView, new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        dialogContent.addView(dialogOverlay, new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
 
 
         AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
-        builder.setView(dialogImageView);
+        builder.setView(dialogContent);
 
 
         AlertDialog dialog = builder.create();
@@ -508,11 +783,40 @@ public class SettingsFragment extends Fragment {
     }
 
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        cancelDetection();
+        if (backendTask != null) {
+            backendTask.cancel();
+            backendTask = null;
+        }
+        if (exportTask != null) {
+            exportTask.cancel();
+            exportTask = null;
+        }
+        if (modelInfoTask != null) {
+            modelInfoTask.cancel();
+            modelInfoTask = null;
+        }
+        if (compareTask != null) {
+            compareTask.cancel();
+            compareTask = null;
+        }
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
-        if (interpreter != null) {
-            interpreter.close();
+        releaseImageToAnalyze();
+        releaseTiledDetector();
+        if (engineTask != null) {
+            engineTask.cancel();
+            engineTask = null;
+        }
+        if (engine != null) {
+            engine.release();
+            engine = null;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.example.ecoscan;
+
+import android.os.Debug;
+import android.os.SystemClock;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tempo e alocação por etapa da análise (carregar, pré-processar, inferir, pós-processar,
+ * desenhar), para saber onde está a lentidão num aparelho específico. Cada etapa é
+ * cercada por {@link #begin(Stage)} e {@link #end(Stage)}; desligado, os dois voltam na
+ * primeira linha, sem alocar nem ler relógio.
+ *
+ * <p>As alocações vêm dos contadores por thread do ART, que só contam enquanto a medição
+ * está ligada.
+ */
+final class StageMetrics {
+
+    enum Stage {
+        LOAD_BITMAP("carregar imagem"),
+        PREPROCESS("pré-processamento"),
+        INFERENCE("inferência"),
+        POSTPROCESS("pós-processamento"),
+        // Primeira passada da cascata (DetectorEngine.detectAdaptive), separada para não
+        // misturar duas resoluções na mesma amostra.
+        PREPROCESS_LOW_RES("pré-processamento, baixa resolução"),
+        INFERENCE_LOW_RES("inferência, baixa resolução"),
+        POSTPROCESS_LOW_RES("pós-processamento, baixa resolução"),
+        DRAW("desenho");
+
+        final String displayName;
+
+        Stage(String displayName) {
+            this.displayName = displayName;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final LatencyHistogram[] HISTOGRAMS = new LatencyHistogram[STAGES.length];
+    private static final AtomicLongArray ALLOC_OBJECTS = new AtomicLongArray(STAGES.length);
+    private static final AtomicLongArray ALLOC_BYTES = new AtomicLongArray(STAGES.length);
+    // Por thread e por etapa: início em ns, objetos e bytes alocados até o início.
+    private static final ThreadLocal<long[]> STARTS = ThreadLocal.withInitial(() -> new long[STAGES.length * 3]);
+
+    private static volatile boolean enabled;
+
+    static {
+        for (int i = 0; i < STAGES.length; i++) {
+            HISTOGRAMS[i] = new LatencyHistogram();
+        }
+    }
+
+    private StageMetrics() {
+    }
+
+    /** Ligar zera o que foi medido antes. */
+    @SuppressWarnings("deprecation")
+    static synchronized void setEnabled(boolean enable) {
+        if (enable == enabled) return;
+        if (enable) {
+            reset();
+            Debug.startAllocCounting();
+        } else {
+            Debug.stopAllocCounting();
+        }
+        enabled = enable;
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    @SuppressWarnings("deprecation")
+    static void begin(Stage stage) {
+        if (!enabled) return;
+        long[] starts = STARTS.get();
+        int slot = stage.ordinal() * 3;
+        starts[slot + 1] = Debug.getThreadAllocCount();
+        starts[slot + 2] = Debug.getThreadAllocSize();
+        starts[slot] = SystemClock.elapsedRealtimeNanos();
+    }
+
+    @SuppressWarnings("deprecation")
+    static void end(Stage stage) {
+        if (!enabled) return;
+        long now = SystemClock.elapsedRealtimeNanos();
+        long[] starts = STARTS.get();
+        int slot = stage.ordinal() * 3;
+        // Zero: a medição foi ligada no meio da etapa.
+        if (starts[slot] == 0) return;
+        int index = stage.ordinal();
+        HISTOGRAMS[index].record(now - starts[slot]);
+        ALLOC_OBJECTS.addAndGet(index, Debug.getThreadAllocCount() - starts[slot + 1]);
+        ALLOC_BYTES.addAndGet(index, Debug.getThreadAllocSize() - starts[slot + 2]);
+        starts[slot] = 0;
+    }
+
+    static void reset() {
+        for (int i = 0; i < STAGES.length; i++) {
+            HISTOGRAMS[i].reset();
+            ALLOC_OBJECTS.set(i, 0);
+            ALLOC_BYTES.set(i, 0);
+        }
+    }
+
+    /** Uma linha por etapa medida; também é o texto exportado. */
+    static String describe() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < STAGES.length; i++) {
+            LatencyHistogram histogram = HISTOGRAMS[i];
+            long runs = histogram.getCount();
+            if (runs == 0) continue;
+            if (text.length() > 0) text.append('\n');
+            text.append(String.format(Locale.US,
+                    "%s (%d): p50 %.1f, p90 %.1f, p99 %.1f, máx %.1f ms; %d objetos, %.1f KB por execução",
+                    STAGES[i].displayName, runs,
+                    histogram.percentileNanos(0.5) / 1e6, histogram.percentileNanos(0.9) / 1e6,
+                    histogram.percentileNanos(0.99) / 1e6, histogram.getMaxNanos() / 1e6,
+                    ALLOC_OBJECTS.get(i) / runs, ALLOC_BYTES.get(i) / 1024f / runs));
+        }
+        return text.toString();
+    }
+}
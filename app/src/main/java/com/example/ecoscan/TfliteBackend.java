@@ -0,0 +1,43 @@
+package com.example.ecoscan;
+
+import com.example.ecoscan.core.InferenceBackend;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link InferenceBackend} sobre o Interpreter do TFLite. O Interpreter pode ser trocado
+ * (ver {@link DetectorEngine#calibrate()}); como tudo roda na thread de inferência, a
+ * troca nunca acontece no meio de uma execução.
+ */
+final class TfliteBackend implements InferenceBackend {
+
+    private volatile Interpreter interpreter;
+
+    TfliteBackend(Interpreter interpreter) {
+        this.interpreter = interpreter;
+    }
+
+    @Override
+    public void run(ByteBuffer input, ByteBuffer output) {
+        interpreter.run(input, output);
+    }
+
+    /** Acesso direto para o que o backend genérico não cobre (ex.: redimensionar a entrada para lote). */
+    Interpreter getInterpreter() {
+        return interpreter;
+    }
+
+    /** Troca o Interpreter e fecha o anterior. */
+    void replace(Interpreter replacement) {
+        Interpreter previous = interpreter;
+        interpreter = replacement;
+        previous.close();
+    }
+
+    @Override
+    public void close() {
+        interpreter.close();
+    }
+}
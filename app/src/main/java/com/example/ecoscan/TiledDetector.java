@@ -0,0 +1,292 @@
+package com.example.ecoscan;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.net.Uri;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.ecoscan.StageMetrics.Stage;
+import com.example.ecoscan.core.BoundingBox;
+import com.example.ecoscan.core.Detection;
+import com.example.ecoscan.core.NmsEngine;
+import com.example.ecoscan.core.TensorPreprocessor;
+import com.example.ecoscan.core.TileLayout;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Detecção em blocos para fotos grandes: reduzir 4000x3000 direto para a entrada do modelo
+ * apaga objetos pequenos (tampinhas, papel-alumínio). A foto é dividida em blocos
+ * sobrepostos ({@link TileLayout}), cada um decodificado sozinho com BitmapRegionDecoder (a
+ * foto inteira nunca é materializada) e pré-processado em paralelo. Cada grupo de
+ * {@link DetectorEngine#BATCH_SIZE} blocos vai num único {@code run} do Interpreter de lote do
+ * engine, que já tem esse shape; o grupo final, menor, roda um bloco por vez no Interpreter
+ * normal. As detecções voltam para coordenadas da foto e passam por uma NMS global. Um bloco
+ * extra com a foto inteira, reduzida, pega os objetos maiores que um bloco.
+ *
+ * <p>{@link #detect} roda na thread do {@link InferenceExecutor}.
+ */
+final class TiledDetector {
+
+    /** Ajustes da tela de experimento, salvos em SharedPreferences. */
+    static final class Config {
+        final boolean enabled;
+        final int tilesPerSide;
+        final float overlap;
+        /** 0 = sem limite. */
+        final long latencyBudgetMs;
+
+        Config(boolean enabled, int tilesPerSide, float overlap, long latencyBudgetMs) {
+            this.enabled = enabled;
+            this.tilesPerSide = tilesPerSide;
+            this.overlap = overlap;
+            this.latencyBudgetMs = latencyBudgetMs;
+        }
+
+        static Config load(Context context) {
+            SharedPreferences prefs = prefs(context);
+            return new Config(prefs.getBoolean(KEY_ENABLED, false),
+                    prefs.getInt(KEY_TILES, 3),
+                    prefs.getFloat(KEY_OVERLAP, 0.2f),
+                    prefs.getLong(KEY_BUDGET, 2000));
+        }
+
+        void save(Context context) {
+            prefs(context).edit()
+                    .putBoolean(KEY_ENABLED, enabled)
+                    .putInt(KEY_TILES, tilesPerSide)
+                    .putFloat(KEY_OVERLAP, overlap)
+                    .putLong(KEY_BUDGET, latencyBudgetMs)
+                    .apply();
+        }
+
+        Config withEnabled(boolean enabled) {
+            return new Config(enabled, tilesPerSide, overlap, latencyBudgetMs);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%dx%d blocos, sobreposição %.0f%%, %s", tilesPerSide, tilesPerSide,
+                    overlap * 100, latencyBudgetMs > 0 ? "limite " + latencyBudgetMs + " ms" : "sem limite de tempo");
+        }
+    }
+
+    static final class Result {
+        final List<Detection> detections;
+        final int tilesRun;
+        final int tilesPlanned;
+
+        Result(List<Detection> detections, int tilesRun, int tilesPlanned) {
+            this.detections = detections;
+            this.tilesRun = tilesRun;
+            this.tilesPlanned = tilesPlanned;
+        }
+    }
+
+    private static final String TAG = "EcoScanTiles";
+    private static final String PREFS_NAME = "ecoscan_tiles";
+    private static final String KEY_ENABLED = "enabled";
+    private static final String KEY_TILES = "tiles_per_side";
+    private static final String KEY_OVERLAP = "overlap";
+    private static final String KEY_BUDGET = "budget_ms";
+    private static final int DECODE_THREADS = 2;
+
+    private final Context context;
+    private final BitmapPool bitmapPool;
+    private final DetectorEngine engine;
+    private final ExecutorService decodePool = Executors.newFixedThreadPool(DECODE_THREADS, r -> new Thread(r, "EcoScan-TileDecode"));
+
+    private final int imageOutputElements;
+    private final ByteBuffer batchInput;
+    private final ByteBuffer batchOutput;
+    private final ByteBuffer[] inputSlots;
+    private final TensorPreprocessor[] preprocessors;
+
+    TiledDetector(Context context, DetectorEngine engine) {
+        this.context = context.getApplicationContext();
+        bitmapPool = BitmapPool.get(context);
+        this.engine = engine;
+
+        int imageInputBytes = engine.getImageInputBytes();
+        imageOutputElements = engine.getImageOutputElements();
+        int batchSize = DetectorEngine.BATCH_SIZE;
+        batchInput = ByteBuffer.allocateDirect(batchSize * imageInputBytes).order(ByteOrder.nativeOrder());
+        batchOutput = ByteBuffer.allocateDirect(batchSize * engine.getImageOutputBytes()).order(ByteOrder.nativeOrder());
+        inputSlots = new ByteBuffer[batchSize];
+        preprocessors = new TensorPreprocessor[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            inputSlots[i] = DetectorEngine.view(batchInput, i * imageInputBytes, imageInputBytes);
+            preprocessors[i] = new TensorPreprocessor(engine.getInputWidth(), engine.getInputHeight(), engine.getInputFormat());
+        }
+    }
+
+    boolean isFor(DetectorEngine engine) {
+        return this.engine == engine;
+    }
+
+    void release() {
+        decodePool.shutdown();
+    }
+
+    /**
+     * Analisa {@code uri} em blocos. Os lotes param quando o próximo passaria do limite de tempo
+     * da {@code config} (o primeiro, com a visão geral, sempre roda).
+     *
+     * @return detecções normalizadas pela foto em pé, do maior para o menor score
+     */
+    Result detect(Uri uri, Config config, float threshold) throws Exception {
+        long start = SystemClock.elapsedRealtime();
+        ContentResolver resolver = context.getContentResolver();
+        int rotation = ImageLoader.readRotation(resolver, uri);
+        BitmapRegionDecoder[] decoders = new BitmapRegionDecoder[DECODE_THREADS];
+        try {
+            for (int i = 0; i < DECODE_THREADS; i++) {
+                decoders[i] = openDecoder(resolver, uri);
+            }
+            int rawWidth = decoders[0].getWidth();
+            int rawHeight = decoders[0].getHeight();
+            boolean sideways = rotation % 180 != 0;
+            int width = sideways ? rawHeight : rawWidth;
+            int height = sideways ? rawWidth : rawHeight;
+
+            List<TileLayout.Tile> tiles = new ArrayList<>();
+            tiles.add(new TileLayout.Tile(0, 0, width, height));
+            if (Math.max(width, height) > Math.max(engine.getInputWidth(), engine.getInputHeight())) {
+                tiles.addAll(TileLayout.plan(width, height, config.tilesPerSide, config.overlap));
+            }
+
+            List<Detection> all = new ArrayList<>();
+            int done = 0;
+            int batches = 0;
+            while (done < tiles.size()) {
+                long elapsed = SystemClock.elapsedRealtime() - start;
+                if (batches > 0 && config.latencyBudgetMs > 0 && elapsed + elapsed / batches > config.latencyBudgetMs) {
+                    break;
+                }
+                List<TileLayout.Tile> batch = tiles.subList(done, Math.min(done + DetectorEngine.BATCH_SIZE, tiles.size()));
+                runBatch(decoders, batch, rotation, rawWidth, rawHeight, width, height, threshold, all);
+                done += batch.size();
+                batches++;
+            }
+
+            List<Detection> merged = TileLayout.merge(all, NmsEngine.DEFAULT_IOU_THRESHOLD);
+            Log.d(TAG, String.format(Locale.US, "%dx%d: %d de %d blocos em %d ms, %d detecções (%d antes da NMS global).",
+                    width, height, done, tiles.size(), SystemClock.elapsedRealtime() - start, merged.size(), all.size()));
+            return new Result(merged, done, tiles.size());
+        } finally {
+            for (BitmapRegionDecoder decoder : decoders) {
+                if (decoder != null) decoder.recycle();
+            }
+        }
+    }
+
+    private void runBatch(BitmapRegionDecoder[] decoders, List<TileLayout.Tile> batch, int rotation,
+                          int rawWidth, int rawHeight, int width, int height, float threshold,
+                          List<Detection> out) throws Exception {
+        int count = batch.size();
+        boolean[] decoded = new boolean[count];
+        // Cada decoder fica com uma thread: o BitmapRegionDecoder serializa chamadas concorrentes.
+        List<Callable<Void>> decodeJobs = new ArrayList<>(DECODE_THREADS);
+        for (int d = 0; d < DECODE_THREADS; d++) {
+            BitmapRegionDecoder decoder = decoders[d];
+            int first = d;
+            decodeJobs.add(() -> {
+                for (int slot = first; slot < count; slot += DECODE_THREADS) {
+                    decoded[slot] = decodeInto(decoder, slot, batch.get(slot).toRaw(rotation, rawWidth, rawHeight), rotation);
+                }
+                return null;
+            });
+        }
+        for (Future<Void> future : decodePool.invokeAll(decodeJobs)) {
+            future.get();
+        }
+
+        engine.runBatch(batchInput, batchOutput, count);
+
+        for (int i = 0; i < count; i++) {
+            if (!decoded[i]) continue;
+            TileLayout.Tile tile = batch.get(i);
+            for (Detection detection : engine.getPipeline().postProcess(batchOutput, i * imageOutputElements, threshold, 1f)) {
+                BoundingBox box = TileLayout.toImage(detection.boundingBox, tile, width, height);
+                out.add(new Detection(box, detection.label, detection.classIndex, detection.confidence));
+            }
+        }
+    }
+
+    /** Pool de decodificação. {@code raw} está em pixels da foto como gravada. */
+    private boolean decodeInto(BitmapRegionDecoder decoder, int slot, TileLayout.Tile raw, int rotation) {
+        // Maior redução por potência de 2 em que o bloco ainda cobre a entrada do modelo.
+        boolean sideways = rotation % 180 != 0;
+        int coverWidth = sideways ? engine.getInputHeight() : engine.getInputWidth();
+        int coverHeight = sideways ? engine.getInputWidth() : engine.getInputHeight();
+        int sampleSize = 1;
+        while (raw.width() / (sampleSize * 2) >= coverWidth && raw.height() / (sampleSize * 2) >= coverHeight) {
+            sampleSize *= 2;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+        // O decoder escreve a região no canto do inBitmap sem redimensioná-lo: tamanho exato.
+        options.inBitmap = bitmapPool.acquire(Math.max(1, raw.width() / sampleSize), Math.max(1, raw.height() / sampleSize));
+        StageMetrics.begin(Stage.LOAD_BITMAP);
+        Rect region = new Rect(raw.left, raw.top, raw.right, raw.bottom);
+        Bitmap bitmap;
+        try {
+            bitmap = decoder.decodeRegion(region, options);
+        } catch (IllegalArgumentException e) {
+            // O decoder recusou o bitmap reaproveitado; tenta de novo alocando.
+            bitmapPool.release(options.inBitmap);
+            options.inBitmap = null;
+            bitmap = decoder.decodeRegion(region, options);
+        }
+        StageMetrics.end(Stage.LOAD_BITMAP);
+        if (bitmap == null) {
+            bitmapPool.release(options.inBitmap);
+            Log.w(TAG, "Bloco ignorado: " + raw);
+            return false;
+        }
+        StageMetrics.begin(Stage.PREPROCESS);
+        preprocessors[slot].process(new BitmapPixelSource(bitmap, rotation), inputSlots[slot]);
+        StageMetrics.end(Stage.PREPROCESS);
+        bitmapPool.release(bitmap);
+        return true;
+    }
+
+    private static BitmapRegionDecoder openDecoder(ContentResolver resolver, Uri uri) throws IOException {
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) throw new IOException("Sem acesso a " + uri);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                return BitmapRegionDecoder.newInstance(in);
+            }
+            return newInstanceLegacy(in);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static BitmapRegionDecoder newInstanceLegacy(InputStream in) throws IOException {
+        return BitmapRegionDecoder.newInstance(in, false);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
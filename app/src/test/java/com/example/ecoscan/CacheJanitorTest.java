@@ -0,0 +1,68 @@
+package com.example.ecoscan;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+public class CacheJanitorTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long NOW = 1_000 * HOUR;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File image(String name, long bytes, long modifiedMs) throws IOException {
+        File file = folder.newFile(name);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(bytes);
+        }
+        assertTrue(file.setLastModified(modifiedMs));
+        return file;
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedUntilUnderSizeCap() throws Exception {
+        File oldest = image("a.jpg", 400, NOW - 5 * HOUR);
+        File middle = image("b.jpg", 400, NOW - 4 * HOUR);
+        File newest = image("c.jpg", 400, NOW - 3 * HOUR);
+
+        CacheJanitor.Result result = CacheJanitor.trim(folder.getRoot(), 900, 100 * HOUR, HOUR, NOW);
+
+        assertEquals(1, result.filesDeleted);
+        assertEquals(400, result.bytesReclaimed);
+        assertEquals(800, result.bytesKept);
+        assertFalse(oldest.exists());
+        assertTrue(middle.exists());
+        assertTrue(newest.exists());
+    }
+
+    @Test
+    public void evictsExpiredButNeverRecentFiles() throws Exception {
+        File expired = image("old.jpg", 10, NOW - 50 * HOUR);
+        File kept = image("kept.jpg", 10, NOW - 2 * HOUR);
+        File recent = image("recent.jpg", 1000, NOW - HOUR / 2);
+
+        // O recente sozinho passa do limite, mas ainda pode estar em uso.
+        CacheJanitor.Result result = CacheJanitor.trim(folder.getRoot(), 100, 24 * HOUR, HOUR, NOW);
+
+        assertEquals(2, result.filesDeleted);
+        assertFalse(expired.exists());
+        assertFalse(kept.exists());
+        assertTrue(recent.exists());
+        assertEquals(1000, result.bytesKept);
+    }
+
+    @Test
+    public void missingDirectoryIsEmpty() {
+        CacheJanitor.Result result = CacheJanitor.trim(new File(folder.getRoot(), "nada"), 0, 0, 0, NOW);
+        assertEquals(0, result.filesDeleted);
+        assertEquals(0, result.bytesKept);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.ecoscan;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class DisposalRulesTest {
+
+    private static InputStream rules(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void compilesRulesInModelClassOrder() throws IOException {
+        DisposalRules rules = DisposalRules.compile(rules(
+                "# comentário\n"
+                        + "paper;Papel;Lixeira Azul;Lixo Reciclável;#1976D2\n"
+                        + "\n"
+                        + "Glass;Vidro;Lixeira Verde;Lixo Reciclável;#80388E3C\n"
+                        + "*;Outro;Lixeira Cinza;Lixo Comum;#616161\n"),
+                Arrays.asList("glass", "battery", "paper"));
+
+        assertEquals("Vidro", rules.forClass(0).objectName);
+        assertEquals(0x80388E3C, rules.forClass(0).binColor);
+        assertEquals("Outro", rules.forClass(1).objectName);
+        assertEquals("Papel", rules.forClass(2).objectName);
+        assertEquals(0xFF1976D2, rules.forClass(2).binColor);
+        assertSame(rules.getFallback(), rules.forClass(7));
+        assertSame(rules.getFallback(), rules.forClass(-1));
+        assertEquals(1, rules.getUnmatchedLabels());
+    }
+
+    @Test
+    public void missingFallbackUsesBuiltInRule() throws IOException {
+        DisposalRules rules = DisposalRules.compile(rules("metal;Metal;Lixeira Amarela;Lixo Reciclável;#FBC02D\n"),
+                Arrays.asList("metal", "glass"));
+
+        assertEquals("Desconhecido", rules.forClass(1).objectName);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsInvalidColor() throws IOException {
+        DisposalRules.compile(rules("metal;Metal;Lixeira Amarela;Lixo Reciclável;amarelo\n"), Arrays.asList("metal"));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.ecoscan;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void percentilesFallInTheRightBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int ms = 1; ms <= 100; ms++) {
+            histogram.record(ms * MS);
+        }
+
+        assertEquals(100, histogram.getCount());
+        long p50 = histogram.percentileNanos(0.5);
+        assertTrue("p50 " + p50, p50 >= 50 * MS && p50 <= 60 * MS);
+        long p90 = histogram.percentileNanos(0.9);
+        assertTrue("p90 " + p90, p90 >= 90 * MS && p90 <= 108 * MS);
+        assertEquals(100 * MS, histogram.percentileNanos(0.99));
+        assertEquals(100 * MS, histogram.getMaxNanos());
+        assertEquals(50_500_000L, histogram.meanNanos());
+    }
+
+    @Test
+    public void overflowBucketReportsTheMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1 * MS);
+        histogram.record(60_000 * MS);
+
+        assertEquals(60_000 * MS, histogram.percentileNanos(0.99));
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5 * MS);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.percentileNanos(0.5));
+        assertEquals(0, histogram.getMaxNanos());
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.ecoscan;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class LatestFrameSlotTest {
+
+    private static final class FakeFrame {
+        int sequence;
+    }
+
+    @Test
+    public void consumerAlwaysGetsTheNewestFrame() {
+        LatestFrameSlot<FakeFrame> slot = new LatestFrameSlot<>(Arrays.asList(new FakeFrame(), new FakeFrame(), new FakeFrame()));
+
+        for (int i = 1; i <= 5; i++) {
+            FakeFrame frame = slot.acquireForWrite();
+            assertNotNull(frame);
+            frame.sequence = i;
+            slot.publish(frame);
+        }
+
+        FakeFrame latest = slot.takeLatest();
+        assertEquals(5, latest.sequence);
+        assertNull(slot.takeLatest());
+        assertEquals(5, slot.getPublishedCount());
+        assertEquals(4, slot.getDroppedCount());
+    }
+
+    @Test
+    public void producerNeverStarvesWhileConsumerHoldsAFrame() {
+        LatestFrameSlot<FakeFrame> slot = new LatestFrameSlot<>(Arrays.asList(new FakeFrame(), new FakeFrame(), new FakeFrame()));
+
+        FakeFrame first = slot.acquireForWrite();
+        first.sequence = 1;
+        slot.publish(first);
+        FakeFrame inUse = slot.takeLatest();
+
+        // Com o consumidor ocupado, o produtor continua publicando e descartando frames velhos.
+        for (int i = 2; i <= 10; i++) {
+            FakeFrame frame = slot.acquireForWrite();
+            assertNotNull(frame);
+            assertNotSame(inUse, frame);
+            frame.sequence = i;
+            slot.publish(frame);
+        }
+
+        slot.recycle(inUse);
+        assertEquals(10, slot.takeLatest().sequence);
+        assertEquals(8, slot.getDroppedCount());
+    }
+
+    @Test
+    public void acquireReturnsNullWhenAllBuffersAreHeld() {
+        LatestFrameSlot<FakeFrame> slot = new LatestFrameSlot<>(Arrays.asList(new FakeFrame()));
+
+        FakeFrame frame = slot.acquireForWrite();
+        assertNull(slot.acquireForWrite());
+
+        slot.recycle(frame);
+        assertSame(frame, slot.acquireForWrite());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.ecoscan;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ScanHistoryStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ScanHistoryStore.Record record(long timestamp, int label) {
+        ScanHistoryStore.Record record = new ScanHistoryStore.Record();
+        record.timestampMs = timestamp;
+        record.labelIndex = label;
+        record.confidence = 0.5f + label / 100f;
+        record.left = 0.1f;
+        record.top = 0.2f;
+        record.right = 0.3f;
+        record.bottom = 0.4f;
+        return record;
+    }
+
+    @Test
+    public void recordsSurviveReopenAcrossWindows() throws Exception {
+        File file = folder.newFile("history.log");
+        int total = ScanHistoryStore.WINDOW_BYTES / ScanHistoryStore.RECORD_BYTES * 2 + 10;
+        try (ScanHistoryStore store = new ScanHistoryStore(file, 64)) {
+            for (int i = 0; i < total; i++) {
+                store.append(record(i, i % 6));
+            }
+        }
+
+        try (ScanHistoryStore store = new ScanHistoryStore(file, 64)) {
+            assertEquals(total, store.size());
+            long[] expected = {0};
+            store.forEach((index, r) -> {
+                assertEquals(expected[0], r.timestampMs);
+                assertEquals((int) (expected[0] % 6), r.labelIndex);
+                expected[0]++;
+                return true;
+            });
+            assertEquals(total, expected[0]);
+        }
+    }
+
+    @Test
+    public void reverseIteration_startsAtNewestAndCanStopEarly() throws Exception {
+        File file = folder.newFile("history.log");
+        try (ScanHistoryStore store = new ScanHistoryStore(file, 1)) {
+            for (int i = 0; i < 10; i++) {
+                store.append(record(i, 0));
+            }
+            List<Long> seen = new ArrayList<>();
+            store.forEachReverse((index, r) -> {
+                seen.add(r.timestampMs);
+                return seen.size() < 3;
+            });
+            assertEquals(List.of(9L, 8L, 7L), seen);
+        }
+    }
+
+    @Test
+    public void tornLastRecord_isDiscardedOnOpen() throws Exception {
+        File file = folder.newFile("history.log");
+        try (ScanHistoryStore store = new ScanHistoryStore(file, 1)) {
+            for (int i = 0; i < 5; i++) {
+                store.append(record(i, 1));
+            }
+        }
+        // Simula um crash no meio da escrita do último registro.
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(4 * ScanHistoryStore.RECORD_BYTES + 20);
+            raf.writeInt(0xDEADBEEF);
+        }
+
+        try (ScanHistoryStore store = new ScanHistoryStore(file, 1)) {
+            assertEquals(4, store.size());
+            store.append(record(99, 2));
+            ScanHistoryStore.Record last = new ScanHistoryStore.Record();
+            assertTrue(store.read(4, last));
+            assertEquals(99, last.timestampMs);
+        }
+        assertEquals(5L * ScanHistoryStore.RECORD_BYTES, file.length());
+    }
+}
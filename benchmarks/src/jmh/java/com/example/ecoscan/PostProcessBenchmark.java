@@ -0,0 +1,121 @@
+package com.example.ecoscan;
+
+import com.example.ecoscan.core.Detection;
+import com.example.ecoscan.core.DetectionPipeline;
+import com.example.ecoscan.core.LabelMap;
+import com.example.ecoscan.core.NmsEngine;
+import com.example.ecoscan.core.ReplayBackend;
+import com.example.ecoscan.core.TensorFormat;
+import com.example.ecoscan.core.YoloDecoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodificação YOLO e NMS sobre uma saída sintética de 8400 propostas e 6 classes, com
+ * densidade de candidatos variável. Rode com {@code ./gradlew :benchmarks:jmh}; o profiler
+ * de GC mostra a alocação por operação, que deve ficar perto de zero.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PostProcessBenchmark {
+
+    private static final float THRESHOLD = 0.2f;
+    private static final int PARALLEL_WORKERS = 4;
+
+    /** Fração das propostas acima do limiar (≈ 17, 170 e 840 candidatos). */
+    @Param({"0.002", "0.02", "0.1"})
+    public float density;
+
+    @Param({"FLOAT32", "UINT8"})
+    public String format;
+
+    private YoloDecoder decoder;
+    private YoloDecoder parallelDecoder;
+    private ExecutorService decodeWorkers;
+    private NmsEngine nms;
+    private float[] x1, y1, x2, y2, scores;
+    private int[] classes;
+    private int count;
+    private DetectionPipeline pipeline;
+    private ReplayBackend backend;
+    private ByteBuffer input;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TensorFormat tensorFormat = "UINT8".equals(format)
+                ? new TensorFormat(TensorFormat.Type.UINT8, 1f / 255f, 0)
+                : TensorFormat.FLOAT32;
+        decoder = new YoloDecoder(SyntheticYoloOutput.NUM_CLASSES, SyntheticYoloOutput.NUM_PROPOSALS, tensorFormat);
+        nms = new NmsEngine(SyntheticYoloOutput.NUM_PROPOSALS);
+        SyntheticYoloOutput.write(SyntheticYoloOutput.generate(density, 42L), tensorFormat, decoder.getOutputBuffer());
+
+        // Mesma saída, dividida entre a thread do benchmark e três ajudantes.
+        parallelDecoder = new YoloDecoder(SyntheticYoloOutput.NUM_CLASSES, SyntheticYoloOutput.NUM_PROPOSALS, tensorFormat);
+        parallelDecoder.getOutputBuffer().put(decoder.getOutputBuffer());
+        decodeWorkers = Executors.newFixedThreadPool(PARALLEL_WORKERS - 1);
+        parallelDecoder.setParallelism(decodeWorkers, PARALLEL_WORKERS);
+
+        // Entrada fixa para o benchmark só de NMS.
+        count = decoder.decode(THRESHOLD, 1f);
+        x1 = Arrays.copyOf(decoder.x1, count);
+        y1 = Arrays.copyOf(decoder.y1, count);
+        x2 = Arrays.copyOf(decoder.x2, count);
+        y2 = Arrays.copyOf(decoder.y2, count);
+        scores = Arrays.copyOf(decoder.scores, count);
+        classes = Arrays.copyOf(decoder.classes, count);
+
+        // Pipeline completo com a saída gravada no lugar do modelo.
+        List<String> labels = new ArrayList<>(Collections.nCopies(SyntheticYoloOutput.NUM_CLASSES, "classe"));
+        YoloDecoder pipelineDecoder = new YoloDecoder(SyntheticYoloOutput.NUM_CLASSES, SyntheticYoloOutput.NUM_PROPOSALS, tensorFormat);
+        pipeline = new DetectionPipeline(pipelineDecoder, new NmsEngine(SyntheticYoloOutput.NUM_PROPOSALS), new LabelMap(labels));
+        backend = new ReplayBackend(Collections.singletonList(ReplayBackend.record(decoder.getOutputBuffer())));
+        input = ByteBuffer.allocateDirect(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        decodeWorkers.shutdown();
+    }
+
+    @Benchmark
+    public int decode() {
+        return decoder.decode(THRESHOLD, 1f);
+    }
+
+    @Benchmark
+    public int decodeParallel() {
+        return parallelDecoder.decode(THRESHOLD, 1f);
+    }
+
+    @Benchmark
+    public int nms() {
+        return nms.run(x1, y1, x2, y2, scores, classes, count);
+    }
+
+    @Benchmark
+    public int decodeAndNms() {
+        int candidates = decoder.decode(THRESHOLD, 1f);
+        return nms.run(decoder.x1, decoder.y1, decoder.x2, decoder.y2, decoder.scores, decoder.classes, candidates);
+    }
+
+    @Benchmark
+    public List<Detection> pipeline() {
+        return pipeline.detect(backend, input, THRESHOLD, 1f);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.ecoscan;
+
+import com.example.ecoscan.core.TensorFormat;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Gera saídas YOLO [4 + C][N] sintéticas com coordenadas normalizadas: uma fração
+ * {@code density} das propostas tem score alto, agrupadas em torno de poucos objetos
+ * (como numa foto real, várias propostas por objeto), e o resto é ruído baixo.
+ */
+final class SyntheticYoloOutput {
+
+    static final int NUM_CLASSES = 6;
+    static final int NUM_PROPOSALS = 8400;
+    private static final int OBJECTS = 12;
+
+    private SyntheticYoloOutput() {
+    }
+
+    static float[] generate(float density, long seed) {
+        Random random = new Random(seed);
+        float[][] objects = new float[OBJECTS][];
+        for (int o = 0; o < OBJECTS; o++) {
+            objects[o] = new float[]{
+                    0.1f + random.nextFloat() * 0.8f, 0.1f + random.nextFloat() * 0.8f,
+                    0.05f + random.nextFloat() * 0.3f, 0.05f + random.nextFloat() * 0.3f,
+                    random.nextInt(NUM_CLASSES)};
+        }
+
+        int n = NUM_PROPOSALS;
+        float[] output = new float[(4 + NUM_CLASSES) * n];
+        for (int j = 0; j < n; j++) {
+            for (int c = 0; c < NUM_CLASSES; c++) {
+                output[(4 + c) * n + j] = random.nextFloat() * 0.1f;
+            }
+            if (random.nextFloat() < density) {
+                float[] object = objects[random.nextInt(OBJECTS)];
+                output[j] = object[0] + (float) random.nextGaussian() * 0.01f;
+                output[n + j] = object[1] + (float) random.nextGaussian() * 0.01f;
+                output[2 * n + j] = object[2] * (1f + (float) random.nextGaussian() * 0.1f);
+                output[3 * n + j] = object[3] * (1f + (float) random.nextGaussian() * 0.1f);
+                output[(4 + (int) object[4]) * n + j] = 0.3f + random.nextFloat() * 0.7f;
+            } else {
+                output[j] = random.nextFloat();
+                output[n + j] = random.nextFloat();
+                output[2 * n + j] = random.nextFloat() * 0.2f;
+                output[3 * n + j] = random.nextFloat() * 0.2f;
+            }
+        }
+        return output;
+    }
+
+    /** Copia {@code values} para {@code buffer} no formato do tensor (quantizando se for o caso). */
+    static void write(float[] values, TensorFormat format, ByteBuffer buffer) {
+        for (int i = 0; i < values.length; i++) {
+            if (format.isQuantized()) {
+                int raw = Math.round(values[i] / format.scale) + format.zeroPoint;
+                buffer.put(i, (byte) Math.max(0, Math.min(255, raw)));
+            } else {
+                buffer.putFloat(i * 4, values[i]);
+            }
+        }
+    }
+}
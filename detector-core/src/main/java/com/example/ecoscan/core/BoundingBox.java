@@ -0,0 +1,43 @@
+package com.example.ecoscan.core;
+
+/** Caixa imutável nas coordenadas em que o decoder foi configurado. */
+public final class BoundingBox {
+
+    public final float left;
+    public final float top;
+    public final float right;
+    public final float bottom;
+
+    public BoundingBox(float left, float top, float right, float bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public float width() {
+        return right - left;
+    }
+
+    public float height() {
+        return bottom - top;
+    }
+
+    public float centerX() {
+        return (left + right) / 2f;
+    }
+
+    public float centerY() {
+        return (top + bottom) / 2f;
+    }
+
+    /** Interseção sobre união; 0 para caixas disjuntas ou vazias. */
+    public float iou(BoundingBox other) {
+        float w = Math.min(right, other.right) - Math.max(left, other.left);
+        float h = Math.min(bottom, other.bottom) - Math.max(top, other.top);
+        if (w <= 0f || h <= 0f) return 0f;
+        float intersection = w * h;
+        float union = width() * height() + other.width() * other.height() - intersection;
+        return union > 0f ? intersection / union : 0f;
+    }
+}
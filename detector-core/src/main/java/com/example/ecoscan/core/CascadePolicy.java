@@ -0,0 +1,110 @@
+package com.example.ecoscan.core;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Decide se o resultado da passada em baixa resolução basta ou se a imagem deve ser analisada
+ * de novo na resolução cheia, e conta quantas vezes isso acontece e quanto tempo se poupa.
+ *
+ * <p>Escala quando nada foi encontrado (pode ser um objeto pequeno), quando a melhor detecção
+ * fica abaixo de {@code escalateBelow}, ou quando ela é ambígua: outra detecção de classe
+ * diferente na mesma região ({@link #AMBIGUOUS_IOU}) com score a menos de
+ * {@code ambiguityMargin} dela.
+ */
+public final class CascadePolicy {
+
+    public static final float DEFAULT_ESCALATE_BELOW = 0.5f;
+    public static final float DEFAULT_AMBIGUITY_MARGIN = 0.15f;
+    static final float AMBIGUOUS_IOU = 0.5f;
+
+    private final float escalateBelow;
+    private final float ambiguityMargin;
+
+    private long scans;
+    private long escalations;
+    private double lowMsTotal;
+    private double escalatedFullMsTotal;
+    // Todas as execuções em resolução cheia medidas, com ou sem cascata: a referência do ganho.
+    private double fullMsTotal;
+    private long fullRuns;
+
+    public CascadePolicy() {
+        this(DEFAULT_ESCALATE_BELOW, DEFAULT_AMBIGUITY_MARGIN);
+    }
+
+    public CascadePolicy(float escalateBelow, float ambiguityMargin) {
+        this.escalateBelow = escalateBelow;
+        this.ambiguityMargin = ambiguityMargin;
+    }
+
+    /** @param lowRes detecções da passada em baixa resolução, do maior para o menor score */
+    public boolean shouldEscalate(List<Detection> lowRes) {
+        if (lowRes.isEmpty()) return true;
+        Detection top = lowRes.get(0);
+        if (top.confidence < escalateBelow) return true;
+        for (int i = 1; i < lowRes.size(); i++) {
+            Detection other = lowRes.get(i);
+            if (top.confidence - other.confidence >= ambiguityMargin) break;
+            if (other.classIndex != top.classIndex && other.boundingBox.iou(top.boundingBox) >= AMBIGUOUS_IOU) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Uma análise em cascata; {@code fullMs} negativo se não escalou. */
+    public synchronized void record(float lowMs, float fullMs) {
+        scans++;
+        lowMsTotal += lowMs;
+        if (fullMs >= 0f) {
+            escalations++;
+            escalatedFullMsTotal += fullMs;
+            recordFullRun(fullMs);
+        }
+    }
+
+    /** Uma execução direto na resolução cheia, fora da cascata. */
+    public synchronized void recordFullRun(float fullMs) {
+        fullMsTotal += fullMs;
+        fullRuns++;
+    }
+
+    public synchronized long getScans() {
+        return scans;
+    }
+
+    public synchronized float getEscalationRate() {
+        return scans > 0 ? escalations / (float) scans : 0f;
+    }
+
+    /**
+     * Média de ms poupados por análise em cascata, comparada com rodar sempre na resolução
+     * cheia (negativo se a cascata custou mais); {@code NaN} sem medidas das duas.
+     */
+    public synchronized float getAverageSavedMs() {
+        if (scans == 0 || fullRuns == 0) return Float.NaN;
+        double fullAverage = fullMsTotal / fullRuns;
+        double cascadeAverage = (lowMsTotal + escalatedFullMsTotal) / scans;
+        return (float) (fullAverage - cascadeAverage);
+    }
+
+    public synchronized void reset() {
+        scans = 0;
+        escalations = 0;
+        lowMsTotal = 0;
+        escalatedFullMsTotal = 0;
+        fullMsTotal = 0;
+        fullRuns = 0;
+    }
+
+    /** Vazio se ainda não houve análise em cascata. */
+    public synchronized String describe() {
+        if (scans == 0) return "";
+        float saved = getAverageSavedMs();
+        return String.format(Locale.US, "Cascata: %d análises, %.0f%% escalaram para a resolução cheia, "
+                        + "baixa resolução %.1f ms em média%s",
+                scans, getEscalationRate() * 100, lowMsTotal / scans,
+                Float.isNaN(saved) ? "." : String.format(Locale.US, ", %.1f ms poupados por análise.", saved));
+    }
+}
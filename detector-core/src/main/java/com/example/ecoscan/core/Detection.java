@@ -0,0 +1,16 @@
+package com.example.ecoscan.core;
+
+public final class Detection {
+
+    public final BoundingBox boundingBox;
+    public final String label;
+    public final int classIndex;
+    public final float confidence;
+
+    public Detection(BoundingBox boundingBox, String label, int classIndex, float confidence) {
+        this.boundingBox = boundingBox;
+        this.label = label;
+        this.classIndex = classIndex;
+        this.confidence = confidence;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.ecoscan.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tudo o que vem depois do modelo: decodificação, NMS e mapeamento de labels. Reutiliza os
+ * buffers do decoder e da NMS, então cada instância deve ser usada de uma thread só.
+ */
+public final class DetectionPipeline {
+
+    private final YoloDecoder decoder;
+    private final NmsEngine nms;
+    private final LabelMap labels;
+
+    public DetectionPipeline(YoloDecoder decoder, NmsEngine nms, LabelMap labels) {
+        this.decoder = decoder;
+        this.nms = nms;
+        this.labels = labels;
+    }
+
+    /** Roda o backend sobre {@code input} e pós-processa a saída. */
+    public List<Detection> detect(InferenceBackend backend, ByteBuffer input, float threshold, float coordDivisor) {
+        backend.run(input, decoder.getOutputBuffer());
+        return postProcess(threshold, coordDivisor);
+    }
+
+    /** Pós-processa o que está no buffer de saída do decoder. */
+    public List<Detection> postProcess(float threshold, float coordDivisor) {
+        return collect(decoder.decode(threshold, coordDivisor));
+    }
+
+    /** Variante para a saída de um lote, com a imagem começando no elemento {@code offset}. */
+    public List<Detection> postProcess(ByteBuffer output, int offset, float threshold, float coordDivisor) {
+        return collect(decoder.decode(output, offset, threshold, coordDivisor));
+    }
+
+    private List<Detection> collect(int count) {
+        int keptCount = nms.run(decoder.x1, decoder.y1, decoder.x2, decoder.y2, decoder.scores, decoder.classes, count);
+        int[] kept = nms.getKept();
+        List<Detection> detections = new ArrayList<>(keptCount);
+        for (int k = 0; k < keptCount; k++) {
+            int i = kept[k];
+            int classIndex = decoder.classes[i];
+            BoundingBox box = new BoundingBox(decoder.x1[i], decoder.y1[i], decoder.x2[i], decoder.y2[i]);
+            detections.add(new Detection(box, labels.labelFor(classIndex), classIndex, decoder.scores[i]));
+        }
+        return detections;
+    }
+
+    public YoloDecoder getDecoder() {
+        return decoder;
+    }
+
+    public NmsEngine getNms() {
+        return nms;
+    }
+
+    public LabelMap getLabels() {
+        return labels;
+    }
+}
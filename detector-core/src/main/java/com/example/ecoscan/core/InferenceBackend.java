@@ -0,0 +1,16 @@
+package com.example.ecoscan.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * O modelo em si: recebe o tensor de entrada e escreve o de saída. No app é o Interpreter
+ * do TFLite; nos testes, um {@link ReplayBackend}.
+ */
+public interface InferenceBackend extends AutoCloseable {
+
+    /** {@code input} e {@code output} têm exatamente o tamanho, em bytes, dos tensores. */
+    void run(ByteBuffer input, ByteBuffer output);
+
+    @Override
+    void close();
+}
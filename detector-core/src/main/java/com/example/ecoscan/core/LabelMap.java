@@ -0,0 +1,50 @@
+package com.example.ecoscan.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Índice de classe do modelo → nome do label, com um nome padrão para índices fora da tabela. */
+public final class LabelMap {
+
+    public static final String UNKNOWN = "Desconhecido";
+
+    private final List<String> labels;
+
+    public LabelMap(List<String> labels) {
+        this.labels = Collections.unmodifiableList(new ArrayList<>(labels));
+    }
+
+    /** Uma label por linha, na ordem das classes do modelo. */
+    public static LabelMap read(InputStream in) throws IOException {
+        List<String> labels = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                labels.add(line);
+            }
+        }
+        return new LabelMap(labels);
+    }
+
+    public String labelFor(int classIndex) {
+        return (classIndex >= 0 && classIndex < labels.size()) ? labels.get(classIndex) : UNKNOWN;
+    }
+
+    public int size() {
+        return labels.size();
+    }
+
+    public boolean isEmpty() {
+        return labels.isEmpty();
+    }
+
+    public List<String> asList() {
+        return labels;
+    }
+}
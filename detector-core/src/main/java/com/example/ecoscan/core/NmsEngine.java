@@ -0,0 +1,95 @@
+package com.example.ecoscan.core;
+
+import java.util.Arrays;
+
+/**
+ * Non-max suppression sobre arrays paralelos (x1, y1, x2, y2, score, classe), sem objetos
+ * por caixa. Com a configuração padrão (sem top-K, sem limite de saída, agnóstico à classe)
+ * o resultado é idêntico ao da NMS antiga sobre {@code List<Detection>}.
+ */
+public final class NmsEngine {
+
+    public static final float DEFAULT_IOU_THRESHOLD = 0.45f;
+
+    private final long[] sortKeys;
+    private final float[] areas;
+    private final int[] kept;
+    private int keptCount;
+
+    private float iouThreshold = DEFAULT_IOU_THRESHOLD;
+    private int preNmsTopK = Integer.MAX_VALUE;
+    private int maxOutputs = Integer.MAX_VALUE;
+    private boolean classAgnostic = true;
+
+    public NmsEngine(int capacity) {
+        sortKeys = new long[capacity];
+        areas = new float[capacity];
+        kept = new int[capacity];
+    }
+
+    public void setIouThreshold(float iouThreshold) {
+        this.iouThreshold = iouThreshold;
+    }
+
+    /** Quantos candidatos de maior score entram na NMS. */
+    public void setPreNmsTopK(int preNmsTopK) {
+        this.preNmsTopK = preNmsTopK;
+    }
+
+    public void setMaxOutputs(int maxOutputs) {
+        this.maxOutputs = maxOutputs;
+    }
+
+    /** Com {@code false}, só caixas da mesma classe se suprimem. */
+    public void setClassAgnostic(boolean classAgnostic) {
+        this.classAgnostic = classAgnostic;
+    }
+
+    /**
+     * Os scores devem ser positivos. Os índices mantidos ficam em {@link #getKept()},
+     * do maior para o menor score.
+     *
+     * @return quantidade de caixas mantidas
+     */
+    public int run(float[] x1, float[] y1, float[] x2, float[] y2, float[] scores, int[] classes, int count) {
+        // Chave = (score decrescente, índice crescente): equivale ao sort estável da versão com Comparator.
+        for (int i = 0; i < count; i++) {
+            long scoreKey = Integer.MAX_VALUE - Float.floatToIntBits(scores[i]);
+            sortKeys[i] = (scoreKey << 32) | i;
+        }
+        Arrays.sort(sortKeys, 0, count);
+
+        int candidates = Math.min(count, preNmsTopK);
+        keptCount = 0;
+        for (int s = 0; s < candidates && keptCount < maxOutputs; s++) {
+            int i = (int) sortKeys[s];
+            float areaI = (x2[i] - x1[i]) * (y2[i] - y1[i]);
+            boolean keep = true;
+            for (int k = 0; k < keptCount; k++) {
+                int j = kept[k];
+                if (!classAgnostic && classes[i] != classes[j]) continue;
+                float xA = Math.max(x1[i], x1[j]), yA = Math.max(y1[i], y1[j]);
+                float xB = Math.min(x2[i], x2[j]), yB = Math.min(y2[i], y2[j]);
+                float interArea = Math.max(0, xB - xA) * Math.max(0, yB - yA);
+                float unionArea = (areaI + areas[j] - interArea);
+                if (interArea / unionArea > iouThreshold) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                areas[i] = areaI;
+                kept[keptCount++] = i;
+            }
+        }
+        return keptCount;
+    }
+
+    public int[] getKept() {
+        return kept;
+    }
+
+    public int getKeptCount() {
+        return keptCount;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.ecoscan.core;
+
+/** Imagem ARGB lida linha a linha (no app, um Bitmap; nos testes, um array). */
+public interface PixelSource {
+
+    int getWidth();
+
+    int getHeight();
+
+    /** Copia a linha {@code y} para {@code argb}, que tem pelo menos {@link #getWidth()} posições. */
+    void getRow(int y, int[] argb);
+}
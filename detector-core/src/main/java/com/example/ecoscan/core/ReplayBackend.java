@@ -0,0 +1,63 @@
+package com.example.ecoscan.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Backend em memória que devolve saídas gravadas, em ordem e em ciclo, ignorando a
+ * entrada. Permite rodar e medir todo o pós-processamento numa JVM comum.
+ */
+public final class ReplayBackend implements InferenceBackend {
+
+    private final List<byte[]> outputs;
+    private int next;
+    private long runs;
+
+    public ReplayBackend(List<byte[]> recordedOutputs) {
+        if (recordedOutputs.isEmpty()) throw new IllegalArgumentException("Nenhuma saída gravada.");
+        outputs = new ArrayList<>(recordedOutputs);
+    }
+
+    /** Saídas float32, já no layout do tensor ([4 + C][N] para YOLO). */
+    public static ReplayBackend ofFloats(float[]... recordedOutputs) {
+        List<byte[]> outputs = new ArrayList<>(recordedOutputs.length);
+        for (float[] values : recordedOutputs) {
+            ByteBuffer buffer = ByteBuffer.allocate(values.length * 4).order(ByteOrder.nativeOrder());
+            buffer.asFloatBuffer().put(values);
+            outputs.add(buffer.array());
+        }
+        return new ReplayBackend(outputs);
+    }
+
+    /** Copia o conteúdo de um buffer de saída para ser reproduzido depois. */
+    public static byte[] record(ByteBuffer output) {
+        ByteBuffer source = output.duplicate();
+        source.clear();
+        byte[] bytes = new byte[source.remaining()];
+        source.get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public void run(ByteBuffer input, ByteBuffer output) {
+        byte[] recorded = outputs.get(next);
+        next = (next + 1) % outputs.size();
+        ByteBuffer target = output.duplicate();
+        target.clear();
+        if (target.remaining() != recorded.length) {
+            throw new IllegalArgumentException("Saída gravada com " + recorded.length + " bytes; o buffer tem " + target.remaining() + ".");
+        }
+        target.put(recorded);
+        runs++;
+    }
+
+    public long getRunCount() {
+        return runs;
+    }
+
+    @Override
+    public void close() {
+    }
+}
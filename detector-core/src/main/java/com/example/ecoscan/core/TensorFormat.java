@@ -0,0 +1,77 @@
+package com.example.ecoscan.core;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Tipo de dado e quantização de um tensor de entrada ou saída do modelo. Modelos float
+ * usam {@link #FLOAT32}; modelos com quantização inteira trazem escala e zero point por
+ * tensor (valor real = (bruto - zeroPoint) * escala). Não depende de classes do Android.
+ */
+public final class TensorFormat {
+
+    public enum Type { FLOAT32, UINT8, INT8 }
+
+    public static final TensorFormat FLOAT32 = new TensorFormat(Type.FLOAT32, 1f, 0);
+
+    public final Type type;
+    public final float scale;
+    public final int zeroPoint;
+    private final float pixelToRaw;
+    private final int minRaw;
+    private final int maxRaw;
+
+    public TensorFormat(Type type, float scale, int zeroPoint) {
+        this.type = type;
+        this.scale = scale;
+        this.zeroPoint = zeroPoint;
+        // A entrada float do modelo é pixel / 255; no domínio quantizado isso vira pixel / (255 * escala).
+        pixelToRaw = 1f / (255f * scale);
+        minRaw = type == Type.INT8 ? -128 : 0;
+        maxRaw = type == Type.INT8 ? 127 : 255;
+    }
+
+    public boolean isQuantized() {
+        return type != Type.FLOAT32;
+    }
+
+    public int bytesPerElement() {
+        return isQuantized() ? 1 : 4;
+    }
+
+    /** Converte um canal de pixel (0 a 255, com interpolação) no valor bruto do tensor. */
+    public int quantizePixel(float pixel) {
+        int raw = Math.round(pixel * pixelToRaw) + zeroPoint;
+        return raw < minRaw ? minRaw : Math.min(raw, maxRaw);
+    }
+
+    /** Escreve o canal {@code pixel} (0 a 255) no elemento {@code index} de {@code buffer}. */
+    public void writePixel(ByteBuffer buffer, int index, float pixel) {
+        if (type == Type.FLOAT32) {
+            buffer.putFloat(index * 4, pixel / 255f);
+        } else {
+            buffer.put(index, (byte) quantizePixel(pixel));
+        }
+    }
+
+    /** Elemento {@code index} de um tensor quantizado, já com o sinal correto. */
+    public int readRaw(ByteBuffer buffer, int index) {
+        byte value = buffer.get(index);
+        return type == Type.UINT8 ? value & 0xFF : value;
+    }
+
+    public float dequantize(int raw) {
+        return (raw - zeroPoint) * scale;
+    }
+
+    /** Limiar equivalente no domínio bruto: {@code bruto > rawThreshold(t)} se e só se {@code real > t}. */
+    public float rawThreshold(float threshold) {
+        return threshold / scale + zeroPoint;
+    }
+
+    @Override
+    public String toString() {
+        if (!isQuantized()) return type.name();
+        return String.format(Locale.US, "%s(escala=%g, zero=%d)", type.name(), scale, zeroPoint);
+    }
+}
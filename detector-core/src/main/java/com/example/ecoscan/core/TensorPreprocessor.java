@@ -0,0 +1,147 @@
+package com.example.ecoscan.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Redimensiona (bilinear), converte ARGB para RGB e normaliza por 255 em uma única
+ * passada, escrevendo direto no buffer de entrada do modelo, que é reutilizado entre
+ * as análises. Substitui a cadeia TensorImage + ResizeOp + NormalizeOp. Lê os pixels
+ * de um {@link PixelSource}, então roda fora do Android.
+ *
+ * <p>Para modelos quantizados o pixel interpolado vai direto para uint8/int8 segundo o
+ * {@link TensorFormat} da entrada, sem passar pela normalização float.
+ */
+public final class TensorPreprocessor {
+
+    private final int width;
+    private final int height;
+    private final TensorFormat format;
+    private ByteBuffer inputBuffer;
+
+    private final int[] columnLeft;
+    private final int[] columnRight;
+    private final float[] columnWeight;
+    private int[] rowTop = new int[0];
+    private int[] rowBottom = new int[0];
+
+    private float scaleX = 1f;
+    private float scaleY = 1f;
+    private float offsetX;
+    private float offsetY;
+
+    public TensorPreprocessor(int width, int height) {
+        this(width, height, TensorFormat.FLOAT32);
+    }
+
+    public TensorPreprocessor(int width, int height, TensorFormat format) {
+        this.width = width;
+        this.height = height;
+        this.format = format;
+        columnLeft = new int[width];
+        columnRight = new int[width];
+        columnWeight = new float[width];
+    }
+
+    /** O buffer retornado é o mesmo a cada chamada; só é válido até a próxima. */
+    public ByteBuffer process(PixelSource source) {
+        if (inputBuffer == null) {
+            // Alocado só no primeiro uso: no modo lote a saída vai direto para a fatia do lote.
+            inputBuffer = ByteBuffer.allocateDirect(width * height * 3 * format.bytesPerElement()).order(ByteOrder.nativeOrder());
+        }
+        process(source, inputBuffer);
+        inputBuffer.rewind();
+        return inputBuffer;
+    }
+
+    /** Escreve a partir do byte 0 de {@code input} (ex.: a fatia de uma imagem num lote), em ordem nativa. */
+    public void process(PixelSource source, ByteBuffer input) {
+        int srcWidth = source.getWidth();
+        int srcHeight = source.getHeight();
+        if (rowTop.length < srcWidth) {
+            rowTop = new int[srcWidth];
+            rowBottom = new int[srcWidth];
+        }
+
+        scaleX = srcWidth / (float) width;
+        scaleY = srcHeight / (float) height;
+        offsetX = 0f;
+        offsetY = 0f;
+
+        for (int x = 0; x < width; x++) {
+            float sx = Math.max(0f, (x + 0.5f) * scaleX - 0.5f);
+            int left = Math.min((int) sx, srcWidth - 1);
+            columnLeft[x] = left;
+            columnRight[x] = Math.min(left + 1, srcWidth - 1);
+            columnWeight[x] = sx - left;
+        }
+
+        int loadedTop = -1;
+        int loadedBottom = -1;
+        int out = 0;
+        for (int y = 0; y < height; y++) {
+            float sy = Math.max(0f, (y + 0.5f) * scaleY - 0.5f);
+            int top = Math.min((int) sy, srcHeight - 1);
+            int bottom = Math.min(top + 1, srcHeight - 1);
+            float wy = sy - top;
+
+            if (top != loadedTop) {
+                if (top == loadedBottom) {
+                    int[] swap = rowTop;
+                    rowTop = rowBottom;
+                    rowBottom = swap;
+                } else {
+                    source.getRow(top, rowTop);
+                }
+                loadedTop = top;
+                loadedBottom = -1;
+            }
+            if (bottom != loadedBottom) {
+                source.getRow(bottom, rowBottom);
+                loadedBottom = bottom;
+            }
+
+            for (int x = 0; x < width; x++) {
+                int left = columnLeft[x], right = columnRight[x];
+                float wx = columnWeight[x];
+                int p00 = rowTop[left], p01 = rowTop[right], p10 = rowBottom[left], p11 = rowBottom[right];
+                for (int shift = 16; shift >= 0; shift -= 8) {
+                    float c00 = (p00 >> shift) & 0xFF, c01 = (p01 >> shift) & 0xFF;
+                    float c10 = (p10 >> shift) & 0xFF, c11 = (p11 >> shift) & 0xFF;
+                    float topValue = c00 + (c01 - c00) * wx;
+                    float bottomValue = c10 + (c11 - c10) * wx;
+                    format.writePixel(input, out++, topValue + (bottomValue - topValue) * wy);
+                }
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public TensorFormat getFormat() {
+        return format;
+    }
+
+    /** Coordenada na imagem original = coordenada no modelo * escala + offset. */
+    public float getScaleX() {
+        return scaleX;
+    }
+
+    public float getScaleY() {
+        return scaleY;
+    }
+
+    public float getOffsetX() {
+        return offsetX;
+    }
+
+    public float getOffsetY() {
+        return offsetY;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.ecoscan.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Divide uma imagem grande em blocos sobrepostos, cada um analisado como uma imagem
+ * inteira pelo modelo, e junta as detecções de volta: as caixas (normalizadas pelo bloco)
+ * passam para coordenadas normalizadas da imagem e uma única NMS global remove as
+ * duplicatas da faixa de sobreposição.
+ */
+public final class TileLayout {
+
+    /** Retângulo em pixels da imagem, [left, right) x [top, bottom). */
+    public static final class Tile {
+        public final int left;
+        public final int top;
+        public final int right;
+        public final int bottom;
+
+        public Tile(int left, int top, int right, int bottom) {
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+        }
+
+        public int width() {
+            return right - left;
+        }
+
+        public int height() {
+            return bottom - top;
+        }
+
+        /**
+         * O mesmo retângulo na imagem como está gravada, antes de girar {@code rotationDegrees}
+         * no sentido horário para ficar em pé (rotação EXIF). {@code rawWidth}/{@code rawHeight}
+         * são as dimensões gravadas.
+         */
+        public Tile toRaw(int rotationDegrees, int rawWidth, int rawHeight) {
+            switch (rotationDegrees) {
+                case 90:
+                    return new Tile(top, rawHeight - right, bottom, rawHeight - left);
+                case 180:
+                    return new Tile(rawWidth - right, rawHeight - bottom, rawWidth - left, rawHeight - top);
+                case 270:
+                    return new Tile(rawWidth - bottom, left, rawWidth - top, right);
+                default:
+                    return this;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "[" + left + ", " + top + ", " + right + ", " + bottom + "]";
+        }
+    }
+
+    private TileLayout() {
+    }
+
+    /**
+     * Blocos quadrados que cobrem a imagem, {@code tilesPerSide} ao longo do lado maior,
+     * vizinhos sobrepostos em pelo menos {@code overlap} (fração do bloco). No lado menor
+     * entram quantos forem precisos; se a imagem for mais estreita que o bloco, ele ocupa o
+     * lado todo. Ordem de leitura: linha por linha.
+     */
+    public static List<Tile> plan(int imageWidth, int imageHeight, int tilesPerSide, float overlap) {
+        if (tilesPerSide < 1) throw new IllegalArgumentException("tilesPerSide < 1: " + tilesPerSide);
+        if (overlap < 0f || overlap >= 1f) throw new IllegalArgumentException("overlap fora de [0, 1): " + overlap);
+        int longSide = Math.max(imageWidth, imageHeight);
+        int side = (int) Math.ceil(longSide / (tilesPerSide - (tilesPerSide - 1) * overlap));
+        int[] xs = positions(imageWidth, side, overlap);
+        int[] ys = positions(imageHeight, side, overlap);
+        int tileWidth = Math.min(side, imageWidth);
+        int tileHeight = Math.min(side, imageHeight);
+
+        List<Tile> tiles = new ArrayList<>(xs.length * ys.length);
+        for (int y : ys) {
+            for (int x : xs) {
+                tiles.add(new Tile(x, y, x + tileWidth, y + tileHeight));
+            }
+        }
+        return tiles;
+    }
+
+    // Início de cada bloco ao longo de um eixo, espalhados por igual até encostar na borda.
+    private static int[] positions(int length, int side, float overlap) {
+        if (length <= side) return new int[]{0};
+        int count = (int) Math.ceil((length - side) / (side * (1f - overlap))) + 1;
+        int[] starts = new int[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = Math.round(i * (length - side) / (float) (count - 1));
+        }
+        return starts;
+    }
+
+    /** Caixa normalizada pelo bloco para caixa normalizada pela imagem inteira. */
+    public static BoundingBox toImage(BoundingBox inTile, Tile tile, int imageWidth, int imageHeight) {
+        return new BoundingBox(
+                (tile.left + inTile.left * tile.width()) / imageWidth,
+                (tile.top + inTile.top * tile.height()) / imageHeight,
+                (tile.left + inTile.right * tile.width()) / imageWidth,
+                (tile.top + inTile.bottom * tile.height()) / imageHeight);
+    }
+
+    /**
+     * NMS global sobre as detecções de todos os blocos, já em coordenadas da imagem.
+     *
+     * @return as mantidas, do maior para o menor score
+     */
+    public static List<Detection> merge(List<Detection> detections, float iouThreshold) {
+        int count = detections.size();
+        float[] x1 = new float[count];
+        float[] y1 = new float[count];
+        float[] x2 = new float[count];
+        float[] y2 = new float[count];
+        float[] scores = new float[count];
+        int[] classes = new int[count];
+        for (int i = 0; i < count; i++) {
+            Detection detection = detections.get(i);
+            x1[i] = detection.boundingBox.left;
+            y1[i] = detection.boundingBox.top;
+            x2[i] = detection.boundingBox.right;
+            y2[i] = detection.boundingBox.bottom;
+            scores[i] = detection.confidence;
+            classes[i] = detection.classIndex;
+        }
+        NmsEngine nms = new NmsEngine(Math.max(1, count));
+        nms.setIouThreshold(iouThreshold);
+        int keptCount = nms.run(x1, y1, x2, y2, scores, classes, count);
+        List<Detection> merged = new ArrayList<>(keptCount);
+        for (int k = 0; k < keptCount; k++) {
+            merged.add(detections.get(nms.getKept()[k]));
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.ecoscan.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decodifica a saída YOLO [1][4 + C][N] direto do buffer do tensor, sem transpor e
+ * sem alocar por execução. Os candidatos acima do limiar ficam nos arrays
+ * {@code x1/y1/x2/y2/scores/classes}, na ordem das propostas, até {@link #getCount()}.
+ *
+ * <p>Em saídas quantizadas a busca da melhor classe e o limiar são feitos nos valores
+ * brutos; só os candidatos aprovados são convertidos para float.
+ *
+ * <p>Com {@link #setParallelism} as propostas são divididas em blocos contíguos, pegos sob
+ * demanda pela thread que chama e por ajudantes do executor (um núcleo rápido acaba pegando
+ * mais blocos que um lento). Cada bloco grava seus candidatos no trecho dos arrays que começa
+ * no seu primeiro índice, então não há disputa; no fim os trechos são compactados em ordem e
+ * o resultado é idêntico ao sequencial.
+ */
+public final class YoloDecoder {
+
+    /** Abaixo disso por bloco, o custo de acordar outra thread passa o ganho. */
+    private static final int MIN_CHUNK_PROPOSALS = 2048;
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private final int numClasses;
+    private final int numProposals;
+    private final TensorFormat format;
+
+    private final ByteBuffer outputBuffer;
+
+    private final float[] bestScores;
+    private final int[] bestRaw;
+    private final int[] bestClasses;
+
+    public final float[] x1;
+    public final float[] y1;
+    public final float[] x2;
+    public final float[] y2;
+    public final float[] scores;
+    public final int[] classes;
+    private int count;
+
+    private Executor executor;
+    private int maxWorkers = 1;
+    private final int[] chunkCounts;
+    private final AtomicInteger nextChunk = new AtomicInteger();
+    private final Runnable helper = this::runHelper;
+    // Estado da decodificação em andamento, publicado aos ajudantes pelo execute().
+    private ByteBuffer runOutput;
+    private int runOffset;
+    private float runThreshold;
+    private float runDivisor;
+    private int runChunks;
+    private int runChunkSize;
+    // Reaproveitados a cada decodificação: o caminho paralelo também não aloca por execução.
+    private final AtomicInteger runPending = new AtomicInteger();
+    private volatile Thread runWaiter;
+    private volatile RuntimeException helperError;
+
+    public YoloDecoder(int numClasses, int numProposals) {
+        this(numClasses, numProposals, TensorFormat.FLOAT32);
+    }
+
+    public YoloDecoder(int numClasses, int numProposals, TensorFormat format) {
+        this.numClasses = numClasses;
+        this.numProposals = numProposals;
+        this.format = format;
+        outputBuffer = ByteBuffer.allocateDirect((4 + numClasses) * numProposals * format.bytesPerElement())
+                .order(ByteOrder.nativeOrder());
+        bestScores = format.isQuantized() ? null : new float[numProposals];
+        bestRaw = format.isQuantized() ? new int[numProposals] : null;
+        bestClasses = new int[numProposals];
+        x1 = new float[numProposals];
+        y1 = new float[numProposals];
+        x2 = new float[numProposals];
+        y2 = new float[numProposals];
+        scores = new float[numProposals];
+        classes = new int[numProposals];
+        chunkCounts = new int[Math.max(1, numProposals / MIN_CHUNK_PROPOSALS)];
+    }
+
+    /**
+     * Passa a dividir a decodificação entre até {@code maxWorkers} threads, contando a que
+     * chama {@code decode}; as demais vêm de {@code executor}, que deve ter pelo menos
+     * {@code maxWorkers - 1} threads para não serializar. Saídas pequenas continuam
+     * sequenciais. Chamar entre decodificações, da mesma thread que as faz.
+     *
+     * @param executor {@code null} volta ao modo sequencial
+     */
+    public void setParallelism(Executor executor, int maxWorkers) {
+        this.executor = executor;
+        this.maxWorkers = executor != null ? Math.max(1, maxWorkers) : 1;
+    }
+
+    /** Buffer de saída a ser passado para {@code interpreter.run}. */
+    public ByteBuffer getOutputBuffer() {
+        outputBuffer.rewind();
+        return outputBuffer;
+    }
+
+    /**
+     * @param coordDivisor divisor aplicado às coordenadas da caixa (1 mantém as coordenadas do modelo)
+     * @return número de candidatos com score maior que {@code threshold}
+     */
+    public int decode(float threshold, float coordDivisor) {
+        return decode(outputBuffer, 0, threshold, coordDivisor);
+    }
+
+    /**
+     * Decodifica a imagem que começa no elemento {@code offset} de uma saída com lote
+     * (ex.: [B][4 + C][N]) no mesmo formato deste decoder, em ordem nativa.
+     */
+    public int decode(ByteBuffer output, int offset, float threshold, float coordDivisor) {
+        int chunks = Math.min(chunkCounts.length, maxWorkers * CHUNKS_PER_WORKER);
+        if (maxWorkers == 1 || chunks < 2) {
+            count = decodeRange(output, offset, threshold, coordDivisor, 0, numProposals);
+            return count;
+        }
+
+        runOutput = output;
+        runOffset = offset;
+        runThreshold = threshold;
+        runDivisor = coordDivisor;
+        runChunks = chunks;
+        runChunkSize = (numProposals + chunks - 1) / chunks;
+        nextChunk.set(0);
+        helperError = null;
+        int helpers = Math.min(maxWorkers, chunks) - 1;
+        runWaiter = Thread.currentThread();
+        runPending.set(helpers);
+        for (int i = 0; i < helpers; i++) {
+            try {
+                executor.execute(helper);
+            } catch (RejectedExecutionException e) {
+                // Executor encerrado: os blocos restantes ficam com esta thread.
+                runPending.decrementAndGet();
+            }
+        }
+        decodeChunks();
+        awaitHelpers();
+        runOutput = null;
+        if (helperError != null) throw helperError;
+
+        // Junta os trechos de cada bloco no começo dos arrays, na ordem das propostas.
+        count = chunkCounts[0];
+        for (int k = 1; k < chunks; k++) {
+            int from = k * runChunkSize;
+            int n = chunkCounts[k];
+            if (n > 0 && from != count) {
+                System.arraycopy(x1, from, x1, count, n);
+                System.arraycopy(y1, from, y1, count, n);
+                System.arraycopy(x2, from, x2, count, n);
+                System.arraycopy(y2, from, y2, count, n);
+                System.arraycopy(scores, from, scores, count, n);
+                System.arraycopy(classes, from, classes, count, n);
+            }
+            count += n;
+        }
+        return count;
+    }
+
+    private void runHelper() {
+        try {
+            decodeChunks();
+        } catch (RuntimeException e) {
+            helperError = e;
+        } finally {
+            if (runPending.decrementAndGet() == 0) LockSupport.unpark(runWaiter);
+        }
+    }
+
+    private void decodeChunks() {
+        int k;
+        while ((k = nextChunk.getAndIncrement()) < runChunks) {
+            int start = k * runChunkSize;
+            int end = Math.min(numProposals, start + runChunkSize);
+            chunkCounts[k] = start < end ? decodeRange(runOutput, runOffset, runThreshold, runDivisor, start, end) : 0;
+        }
+    }
+
+    // Os ajudantes escrevem nos arrays compartilhados; não dá para sair antes deles.
+    private void awaitHelpers() {
+        boolean interrupted = false;
+        while (runPending.get() > 0) {
+            LockSupport.park(this);
+            // Com a interrupção pendente o park volta na hora; limpa e restaura no fim.
+            if (Thread.interrupted()) interrupted = true;
+        }
+        runWaiter = null;
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /** Decodifica as propostas [start, end), gravando os candidatos a partir do índice {@code start}. */
+    private int decodeRange(ByteBuffer output, int offset, float threshold, float coordDivisor, int start, int end) {
+        return format.isQuantized()
+                ? decodeQuantized(output, offset, threshold, coordDivisor, start, end)
+                : decodeFloat(output, offset, threshold, coordDivisor, start, end);
+    }
+
+    private int decodeFloat(ByteBuffer output, int offset, float threshold, float coordDivisor, int start, int end) {
+        int n = numProposals;
+        Arrays.fill(bestScores, start, end, 0.0f);
+        Arrays.fill(bestClasses, start, end, -1);
+
+        // Percorre cada linha de classe de forma contígua; o primeiro máximo estrito vence, como no laço original.
+        for (int c = 0; c < numClasses; c++) {
+            int rowStart = offset + (4 + c) * n;
+            for (int j = start; j < end; j++) {
+                float score = output.getFloat((rowStart + j) * 4);
+                if (score > bestScores[j]) {
+                    bestScores[j] = score;
+                    bestClasses[j] = c;
+                }
+            }
+        }
+
+        int written = start;
+        for (int j = start; j < end; j++) {
+            float maxScore = bestScores[j];
+            if (maxScore > threshold) {
+                float cx = output.getFloat((offset + j) * 4), cy = output.getFloat((offset + n + j) * 4);
+                float w = output.getFloat((offset + 2 * n + j) * 4), h = output.getFloat((offset + 3 * n + j) * 4);
+                addCandidate(written++, cx, cy, w, h, maxScore, bestClasses[j], coordDivisor);
+            }
+        }
+        return written - start;
+    }
+
+    private int decodeQuantized(ByteBuffer output, int offset, float threshold, float coordDivisor, int start, int end) {
+        int n = numProposals;
+        // Escala positiva preserva a ordem, então o argmax e o limiar valem nos valores brutos.
+        // Começar no zero point equivale a começar em 0.0f no caminho float.
+        Arrays.fill(bestRaw, start, end, format.zeroPoint);
+        Arrays.fill(bestClasses, start, end, -1);
+
+        for (int c = 0; c < numClasses; c++) {
+            int rowStart = offset + (4 + c) * n;
+            for (int j = start; j < end; j++) {
+                int raw = format.readRaw(output, rowStart + j);
+                if (raw > bestRaw[j]) {
+                    bestRaw[j] = raw;
+                    bestClasses[j] = c;
+                }
+            }
+        }
+
+        float rawThreshold = format.rawThreshold(threshold);
+        int written = start;
+        for (int j = start; j < end; j++) {
+            if (bestRaw[j] > rawThreshold) {
+                float cx = format.dequantize(format.readRaw(output, offset + j));
+                float cy = format.dequantize(format.readRaw(output, offset + n + j));
+                float w = format.dequantize(format.readRaw(output, offset + 2 * n + j));
+                float h = format.dequantize(format.readRaw(output, offset + 3 * n + j));
+                addCandidate(written++, cx, cy, w, h, format.dequantize(bestRaw[j]), bestClasses[j], coordDivisor);
+            }
+        }
+        return written - start;
+    }
+
+    private void addCandidate(int i, float cx, float cy, float w, float h, float score, int classIndex, float coordDivisor) {
+        x1[i] = (cx - (w / 2f)) / coordDivisor;
+        y1[i] = (cy - (h / 2f)) / coordDivisor;
+        x2[i] = (cx + (w / 2f)) / coordDivisor;
+        y2[i] = (cy + (h / 2f)) / coordDivisor;
+        scores[i] = score;
+        classes[i] = classIndex;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    public int getNumProposals() {
+        return numProposals;
+    }
+
+    public TensorFormat getFormat() {
+        return format;
+    }
+}
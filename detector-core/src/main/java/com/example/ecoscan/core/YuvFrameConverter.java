@@ -0,0 +1,96 @@
+package com.example.ecoscan.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converte um frame YUV_420_888 da câmera direto para a entrada RGB do modelo (já
+ * girada, redimensionada por vizinho mais próximo e no {@link TensorFormat} do modelo),
+ * sem Bitmap nem JPEG intermediários. Não depende de classes do Android.
+ */
+public final class YuvFrameConverter {
+
+    private final int outWidth;
+    private final int outHeight;
+    private final TensorFormat format;
+    private final int[] rotatedX;
+    private final int[] rotatedY;
+
+    private int lastWidth = -1;
+    private int lastHeight = -1;
+    private int lastRotation = -1;
+
+    public YuvFrameConverter(int outWidth, int outHeight) {
+        this(outWidth, outHeight, TensorFormat.FLOAT32);
+    }
+
+    public YuvFrameConverter(int outWidth, int outHeight, TensorFormat format) {
+        this.outWidth = outWidth;
+        this.outHeight = outHeight;
+        this.format = format;
+        rotatedX = new int[outWidth];
+        rotatedY = new int[outHeight];
+    }
+
+    /**
+     * @param rotationDegrees rotação horária (0, 90, 180 ou 270) que deixa o frame em pé
+     * @param out             recebe {@code outWidth * outHeight * 3} elementos a partir do byte 0, em ordem nativa
+     */
+    public void convert(ByteBuffer yPlane, int yRowStride, int yPixelStride,
+                        ByteBuffer uPlane, ByteBuffer vPlane, int uvRowStride, int uvPixelStride,
+                        int width, int height, int rotationDegrees, ByteBuffer out) {
+        if (width != lastWidth || height != lastHeight || rotationDegrees != lastRotation) {
+            boolean swapped = rotationDegrees == 90 || rotationDegrees == 270;
+            int rotatedWidth = swapped ? height : width;
+            int rotatedHeight = swapped ? width : height;
+            for (int x = 0; x < outWidth; x++) {
+                rotatedX[x] = Math.min(rotatedWidth - 1, (int) ((x + 0.5f) * rotatedWidth / outWidth));
+            }
+            for (int y = 0; y < outHeight; y++) {
+                rotatedY[y] = Math.min(rotatedHeight - 1, (int) ((y + 0.5f) * rotatedHeight / outHeight));
+            }
+            lastWidth = width;
+            lastHeight = height;
+            lastRotation = rotationDegrees;
+        }
+
+        int o = 0;
+        for (int y = 0; y < outHeight; y++) {
+            int ry = rotatedY[y];
+            for (int x = 0; x < outWidth; x++) {
+                int rx = rotatedX[x];
+                int sx, sy;
+                switch (rotationDegrees) {
+                    case 90: sx = ry; sy = height - 1 - rx; break;
+                    case 180: sx = width - 1 - rx; sy = height - 1 - ry; break;
+                    case 270: sx = width - 1 - ry; sy = rx; break;
+                    default: sx = rx; sy = ry; break;
+                }
+
+                int luma = yPlane.get(sy * yRowStride + sx * yPixelStride) & 0xFF;
+                int uvIndex = (sy >> 1) * uvRowStride + (sx >> 1) * uvPixelStride;
+                int u = (uPlane.get(uvIndex) & 0xFF) - 128;
+                int v = (vPlane.get(uvIndex) & 0xFF) - 128;
+
+                // BT.601 full range, o mesmo usado pelo JPEG da câmera.
+                float r = luma + 1.402f * v;
+                float g = luma - 0.344136f * u - 0.714136f * v;
+                float b = luma + 1.772f * u;
+                format.writePixel(out, o++, clamp(r));
+                format.writePixel(out, o++, clamp(g));
+                format.writePixel(out, o++, clamp(b));
+            }
+        }
+    }
+
+    private static float clamp(float value) {
+        return value < 0f ? 0f : Math.min(value, 255f);
+    }
+
+    public int getOutWidth() {
+        return outWidth;
+    }
+
+    public int getOutHeight() {
+        return outHeight;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.ecoscan.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BoundingBoxTest {
+
+    @Test
+    public void iou_partialOverlap() {
+        BoundingBox a = new BoundingBox(0f, 0f, 2f, 2f);
+        BoundingBox b = new BoundingBox(1f, 0f, 3f, 2f);
+        // Interseção 2, união 6.
+        assertEquals(1f / 3f, a.iou(b), 1e-6f);
+        assertEquals(a.iou(b), b.iou(a), 0f);
+    }
+
+    @Test
+    public void iou_disjointOrTouchingIsZero() {
+        BoundingBox a = new BoundingBox(0f, 0f, 1f, 1f);
+        assertEquals(0f, a.iou(new BoundingBox(1f, 0f, 2f, 1f)), 0f);
+        assertEquals(0f, a.iou(new BoundingBox(5f, 5f, 6f, 6f)), 0f);
+        assertEquals(1f, a.iou(new BoundingBox(0f, 0f, 1f, 1f)), 0f);
+    }
+}
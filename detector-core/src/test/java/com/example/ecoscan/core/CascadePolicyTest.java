@@ -0,0 +1,49 @@
+package com.example.ecoscan.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CascadePolicyTest {
+
+    private static Detection detection(int classIndex, float confidence, float left) {
+        return new Detection(new BoundingBox(left, 0.1f, left + 0.4f, 0.5f), "c" + classIndex, classIndex, confidence);
+    }
+
+    @Test
+    public void escalatesWhenEmptyOrLowConfidence() {
+        CascadePolicy policy = new CascadePolicy(0.5f, 0.15f);
+        assertTrue(policy.shouldEscalate(Collections.emptyList()));
+        assertTrue(policy.shouldEscalate(Collections.singletonList(detection(0, 0.4f, 0.1f))));
+        assertFalse(policy.shouldEscalate(Collections.singletonList(detection(0, 0.8f, 0.1f))));
+    }
+
+    @Test
+    public void escalatesOnlyWhenCloseRivalOverlaps() {
+        CascadePolicy policy = new CascadePolicy(0.5f, 0.15f);
+        // Outra classe no mesmo lugar, score próximo.
+        assertTrue(policy.shouldEscalate(Arrays.asList(detection(0, 0.8f, 0.1f), detection(1, 0.7f, 0.12f))));
+        // Mesma região, mas bem abaixo.
+        assertFalse(policy.shouldEscalate(Arrays.asList(detection(0, 0.8f, 0.1f), detection(1, 0.5f, 0.12f))));
+        // Score próximo, mas em outro lugar da imagem.
+        assertFalse(policy.shouldEscalate(Arrays.asList(detection(0, 0.8f, 0.1f), detection(1, 0.75f, 0.6f))));
+    }
+
+    @Test
+    public void statsCompareAgainstFullResolution() {
+        CascadePolicy policy = new CascadePolicy();
+        assertTrue(Float.isNaN(policy.getAverageSavedMs()));
+        policy.record(20f, -1f);
+        policy.record(20f, -1f);
+        policy.record(20f, 80f);
+        policy.recordFullRun(80f);
+        assertEquals(1f / 3f, policy.getEscalationRate(), 1e-6f);
+        // Sempre na cheia: 80 ms. Cascata: (20 + 20 + 100) / 3.
+        assertEquals(80f - 140f / 3f, policy.getAverageSavedMs(), 1e-4f);
+    }
+}
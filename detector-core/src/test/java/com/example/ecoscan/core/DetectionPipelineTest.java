@@ -0,0 +1,68 @@
+package com.example.ecoscan.core;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DetectionPipelineTest {
+
+    private static final int CLASSES = 3;
+    private static final int PROPOSALS = 4;
+
+    // Saída [4 + C][N]: 0 e 1 são a mesma garrafa (1 deve sumir na NMS), 2 abaixo do limiar
+    // e 3 de uma classe sem label.
+    private static final float[] OUTPUT = {
+            100f, 102f, 300f, 500f,     // cx
+            100f, 101f, 300f, 500f,     // cy
+            40f, 40f, 20f, 30f,         // w
+            60f, 60f, 20f, 30f,         // h
+            0.9f, 0.8f, 0.1f, 0.05f,    // classe 0
+            0.05f, 0.1f, 0.2f, 0.1f,    // classe 1
+            0.01f, 0.02f, 0.05f, 0.6f,  // classe 2
+    };
+
+    private static DetectionPipeline pipeline() {
+        return new DetectionPipeline(new YoloDecoder(CLASSES, PROPOSALS), new NmsEngine(PROPOSALS),
+                new LabelMap(Arrays.asList("garrafa", "lata")));
+    }
+
+    @Test
+    public void detect_decodesSuppressesAndLabels() {
+        ReplayBackend backend = ReplayBackend.ofFloats(OUTPUT);
+        ByteBuffer input = ByteBuffer.allocateDirect(4).order(ByteOrder.nativeOrder());
+
+        List<Detection> detections = pipeline().detect(backend, input, 0.5f, 1f);
+
+        assertEquals(1, backend.getRunCount());
+        assertEquals(2, detections.size());
+        Detection best = detections.get(0);
+        assertEquals("garrafa", best.label);
+        assertEquals(0, best.classIndex);
+        assertEquals(0.9f, best.confidence, 1e-6f);
+        assertEquals(80f, best.boundingBox.left, 1e-4f);
+        assertEquals(70f, best.boundingBox.top, 1e-4f);
+        assertEquals(120f, best.boundingBox.right, 1e-4f);
+        assertEquals(130f, best.boundingBox.bottom, 1e-4f);
+
+        Detection unknown = detections.get(1);
+        assertEquals(2, unknown.classIndex);
+        assertEquals(LabelMap.UNKNOWN, unknown.label);
+    }
+
+    @Test
+    public void detect_replaysRecordedOutputsInOrder() {
+        float[] empty = new float[OUTPUT.length];
+        ReplayBackend backend = ReplayBackend.ofFloats(OUTPUT, empty);
+        DetectionPipeline pipeline = pipeline();
+        ByteBuffer input = ByteBuffer.allocateDirect(4);
+
+        assertEquals(2, pipeline.detect(backend, input, 0.5f, 1f).size());
+        assertTrue(pipeline.detect(backend, input, 0.5f, 1f).isEmpty());
+        assertEquals(2, pipeline.detect(backend, input, 0.5f, 1f).size());
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.ecoscan.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NmsEngineTest {
+
+    private static class Box {
+        final int index;
+        final float left, top, right, bottom, confidence;
+        Box(int index, float left, float top, float right, float bottom, float confidence) {
+            this.index = index;
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+            this.confidence = confidence;
+        }
+    }
+
+    // Cópia da NMS baseada em List/Comparator usada antes do NmsEngine.
+    private static List<Box> legacyNms(List<Box> allDetections) {
+        List<Box> nmsList = new ArrayList<>();
+        float IOU_THRESHOLD = 0.45f;
+        allDetections.sort(Comparator.comparingDouble((Box d) -> d.confidence).reversed());
+        for (Box detection : allDetections) {
+            boolean keep = true;
+            for (Box nmsDetection : nmsList) {
+                if (legacyIoU(detection, nmsDetection) > IOU_THRESHOLD) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) nmsList.add(detection);
+        }
+        return nmsList;
+    }
+
+    private static float legacyIoU(Box boxA, Box boxB) {
+        float xA = Math.max(boxA.left, boxB.left), yA = Math.max(boxA.top, boxB.top);
+        float xB = Math.min(boxA.right, boxB.right), yB = Math.min(boxA.bottom, boxB.bottom);
+        float interArea = Math.max(0, xB - xA) * Math.max(0, yB - yA);
+        float boxAArea = (boxA.right - boxA.left) * (boxA.bottom - boxA.top);
+        float boxBArea = (boxB.right - boxB.left) * (boxB.bottom - boxB.top);
+        float unionArea = (boxAArea + boxBArea - interArea);
+        return interArea / unionArea;
+    }
+
+    @Test
+    public void matchesLegacyNms_onRandomClutteredScenes() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            int n = 1 + random.nextInt(2000);
+            float[] x1 = new float[n], y1 = new float[n], x2 = new float[n], y2 = new float[n], scores = new float[n];
+            int[] classes = new int[n];
+            List<Box> boxes = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                float cx = random.nextFloat(), cy = random.nextFloat();
+                float w = 0.05f + random.nextFloat() * 0.3f, h = 0.05f + random.nextFloat() * 0.3f;
+                x1[i] = cx - w / 2f;
+                y1[i] = cy - h / 2f;
+                x2[i] = cx + w / 2f;
+                y2[i] = cy + h / 2f;
+                // Scores quantizados para forçar empates.
+                scores[i] = 0.2f + random.nextInt(40) / 50f;
+                classes[i] = random.nextInt(6);
+                boxes.add(new Box(i, x1[i], y1[i], x2[i], y2[i], scores[i]));
+            }
+
+            List<Box> expected = legacyNms(boxes);
+            NmsEngine nms = new NmsEngine(n);
+            int keptCount = nms.run(x1, y1, x2, y2, scores, classes, n);
+
+            assertEquals(expected.size(), keptCount);
+            for (int k = 0; k < keptCount; k++) {
+                assertEquals(expected.get(k).index, nms.getKept()[k]);
+            }
+        }
+    }
+
+    @Test
+    public void classAwareMode_keepsOverlappingBoxesOfDifferentClasses() {
+        float[] x1 = {0f, 0f}, y1 = {0f, 0f}, x2 = {1f, 1f}, y2 = {1f, 1f}, scores = {0.9f, 0.8f};
+        int[] classes = {0, 1};
+        NmsEngine nms = new NmsEngine(2);
+
+        assertEquals(1, nms.run(x1, y1, x2, y2, scores, classes, 2));
+
+        nms.setClassAgnostic(false);
+        assertEquals(2, nms.run(x1, y1, x2, y2, scores, classes, 2));
+    }
+
+    @Test
+    public void topKAndMaxOutputs_limitTheResult() {
+        float[] x1 = {0f, 2f, 4f, 6f}, y1 = {0f, 0f, 0f, 0f}, x2 = {1f, 3f, 5f, 7f}, y2 = {1f, 1f, 1f, 1f};
+        float[] scores = {0.3f, 0.9f, 0.5f, 0.7f};
+        int[] classes = {0, 0, 0, 0};
+        NmsEngine nms = new NmsEngine(4);
+
+        nms.setPreNmsTopK(3);
+        assertEquals(3, nms.run(x1, y1, x2, y2, scores, classes, 4));
+        assertArrayEquals(new int[]{1, 3, 2}, Arrays.copyOf(nms.getKept(), 3));
+
+        nms.setMaxOutputs(2);
+        assertEquals(2, nms.run(x1, y1, x2, y2, scores, classes, 4));
+        assertArrayEquals(new int[]{1, 3}, Arrays.copyOf(nms.getKept(), 2));
+    }
+}
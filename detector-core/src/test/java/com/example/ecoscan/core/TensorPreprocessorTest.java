@@ -0,0 +1,58 @@
+package com.example.ecoscan.core;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class TensorPreprocessorTest {
+
+    private static PixelSource solid(int width, int height, int argb) {
+        return new PixelSource() {
+            @Override
+            public int getWidth() {
+                return width;
+            }
+
+            @Override
+            public int getHeight() {
+                return height;
+            }
+
+            @Override
+            public void getRow(int y, int[] row) {
+                for (int x = 0; x < width; x++) row[x] = argb;
+            }
+        };
+    }
+
+    @Test
+    public void float_downscalesAndNormalizes() {
+        TensorPreprocessor preprocessor = new TensorPreprocessor(4, 2);
+
+        ByteBuffer input = preprocessor.process(solid(40, 30, 0xFF336699));
+
+        assertEquals(4 * 2 * 3 * 4, input.capacity());
+        for (int i = 0; i < 4 * 2; i++) {
+            assertEquals(0x33 / 255f, input.getFloat(i * 12), 1e-5f);
+            assertEquals(0x66 / 255f, input.getFloat(i * 12 + 4), 1e-5f);
+            assertEquals(0x99 / 255f, input.getFloat(i * 12 + 8), 1e-5f);
+        }
+        assertEquals(10f, preprocessor.getScaleX(), 1e-6f);
+        assertEquals(15f, preprocessor.getScaleY(), 1e-6f);
+    }
+
+    @Test
+    public void uint8_writesPixelsWithoutNormalizing() {
+        TensorFormat format = new TensorFormat(TensorFormat.Type.UINT8, 1f / 255f, 0);
+        TensorPreprocessor preprocessor = new TensorPreprocessor(2, 2, format);
+
+        ByteBuffer input = preprocessor.process(solid(3, 5, 0xFF10A0F0));
+
+        assertEquals(2 * 2 * 3, input.capacity());
+        assertEquals(0x10, input.get(0) & 0xFF);
+        assertEquals(0xA0, input.get(1) & 0xFF);
+        assertEquals(0xF0, input.get(2) & 0xFF);
+    }
+}
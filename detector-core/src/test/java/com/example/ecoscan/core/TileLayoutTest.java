@@ -0,0 +1,70 @@
+package com.example.ecoscan.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TileLayoutTest {
+
+    @Test
+    public void plan_coversImageWithOverlap() {
+        List<TileLayout.Tile> tiles = TileLayout.plan(4000, 3000, 2, 0.2f);
+
+        assertEquals(4, tiles.size());
+        TileLayout.Tile first = tiles.get(0);
+        TileLayout.Tile last = tiles.get(tiles.size() - 1);
+        assertEquals(0, first.left);
+        assertEquals(0, first.top);
+        assertEquals(4000, last.right);
+        assertEquals(3000, last.bottom);
+        assertEquals(first.width(), first.height());
+        // Vizinhos na horizontal se sobrepõem em pelo menos 20% do bloco.
+        assertTrue(first.right - tiles.get(1).left >= 0.2f * first.width());
+    }
+
+    @Test
+    public void plan_singleTileIsWholeImage() {
+        List<TileLayout.Tile> tiles = TileLayout.plan(640, 480, 1, 0.25f);
+
+        assertEquals(1, tiles.size());
+        assertEquals(640, tiles.get(0).width());
+        assertEquals(480, tiles.get(0).height());
+    }
+
+    @Test
+    public void toRaw_invertsExifRotation() {
+        // Foto gravada 400x300 e girada 90° para ficar em pé (300x400).
+        TileLayout.Tile upright = new TileLayout.Tile(0, 0, 100, 50);
+        TileLayout.Tile raw = upright.toRaw(90, 400, 300);
+        assertEquals("[0, 200, 50, 300]", raw.toString());
+
+        assertEquals("[300, 250, 400, 300]", upright.toRaw(180, 400, 300).toString());
+        assertEquals("[350, 0, 400, 100]", upright.toRaw(270, 400, 300).toString());
+        assertSame(upright, upright.toRaw(0, 400, 300));
+    }
+
+    @Test
+    public void toImage_mapsTileCoordinates() {
+        TileLayout.Tile tile = new TileLayout.Tile(500, 0, 1500, 1000);
+        BoundingBox box = TileLayout.toImage(new BoundingBox(0.5f, 0.5f, 1f, 1f), tile, 2000, 1000);
+
+        assertEquals(0.5f, box.left, 1e-6f);
+        assertEquals(0.5f, box.top, 1e-6f);
+        assertEquals(0.75f, box.right, 1e-6f);
+        assertEquals(1f, box.bottom, 1e-6f);
+    }
+
+    @Test
+    public void merge_removesDuplicatesFromOverlap() {
+        Detection left = new Detection(new BoundingBox(0.40f, 0.4f, 0.60f, 0.6f), "lata", 1, 0.8f);
+        Detection right = new Detection(new BoundingBox(0.41f, 0.4f, 0.61f, 0.6f), "lata", 1, 0.9f);
+        Detection other = new Detection(new BoundingBox(0.0f, 0.0f, 0.1f, 0.1f), "tampa", 2, 0.5f);
+
+        List<Detection> merged = TileLayout.merge(Arrays.asList(left, right, other), NmsEngine.DEFAULT_IOU_THRESHOLD);
+
+        assertEquals(Arrays.asList(right, other), merged);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.ecoscan.core;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class YoloDecoderTest {
+
+    private static final int CLASSES = 2;
+    private static final int PROPOSALS = 3;
+
+    // Saída [4 + C][N]: proposta 0 abaixo do limiar, 1 da classe 1, 2 da classe 0.
+    private static final float[][] OUTPUT = {
+            {10f, 20f, 40f},   // cx
+            {10f, 30f, 50f},   // cy
+            {4f, 8f, 12f},     // w
+            {4f, 6f, 10f},     // h
+            {0.1f, 0.3f, 0.9f},
+            {0.15f, 0.7f, 0.2f},
+    };
+
+    private static void fillFloat(ByteBuffer buffer, int offset) {
+        for (int row = 0; row < OUTPUT.length; row++) {
+            for (int j = 0; j < PROPOSALS; j++) {
+                buffer.putFloat((offset + row * PROPOSALS + j) * 4, OUTPUT[row][j]);
+            }
+        }
+    }
+
+    private static void fillQuantized(ByteBuffer buffer, TensorFormat format) {
+        for (int row = 0; row < OUTPUT.length; row++) {
+            for (int j = 0; j < PROPOSALS; j++) {
+                int raw = Math.round(OUTPUT[row][j] / format.scale) + format.zeroPoint;
+                buffer.put(row * PROPOSALS + j, (byte) raw);
+            }
+        }
+    }
+
+    @Test
+    public void float_keepsCandidatesAboveThreshold() {
+        YoloDecoder decoder = new YoloDecoder(CLASSES, PROPOSALS);
+        fillFloat(decoder.getOutputBuffer(), 0);
+
+        assertEquals(2, decoder.decode(0.5f, 1f));
+        assertEquals(1, decoder.classes[0]);
+        assertEquals(0.7f, decoder.scores[0], 1e-6f);
+        assertEquals(16f, decoder.x1[0], 1e-6f);
+        assertEquals(27f, decoder.y1[0], 1e-6f);
+        assertEquals(0, decoder.classes[1]);
+        assertEquals(0.9f, decoder.scores[1], 1e-6f);
+    }
+
+    @Test
+    public void batchOffset_decodesSecondImage() {
+        YoloDecoder decoder = new YoloDecoder(CLASSES, PROPOSALS);
+        int imageElements = OUTPUT.length * PROPOSALS;
+        ByteBuffer batch = ByteBuffer.allocate(2 * imageElements * 4).order(ByteOrder.nativeOrder());
+        fillFloat(batch, imageElements);
+
+        assertEquals(2, decoder.decode(batch, imageElements, 0.5f, 1f));
+        assertEquals(0.9f, decoder.scores[1], 1e-6f);
+    }
+
+    @Test
+    public void uint8_matchesFloatWithinQuantizationError() {
+        TensorFormat format = new TensorFormat(TensorFormat.Type.UINT8, 0.2f, 3);
+        YoloDecoder decoder = new YoloDecoder(CLASSES, PROPOSALS, format);
+        fillQuantized(decoder.getOutputBuffer(), format);
+
+        assertEquals(2, decoder.decode(0.5f, 1f));
+        assertEquals(1, decoder.classes[0]);
+        assertEquals(0.7f, decoder.scores[0], format.scale);
+        assertEquals(0, decoder.classes[1]);
+        assertEquals(40f - 12f / 2f, decoder.x1[1], format.scale);
+    }
+
+    @Test
+    public void int8_thresholdIsAppliedInRawDomain() {
+        TensorFormat format = new TensorFormat(TensorFormat.Type.INT8, 1f / 64f, -100);
+        YoloDecoder decoder = new YoloDecoder(CLASSES, PROPOSALS, format);
+        ByteBuffer buffer = decoder.getOutputBuffer();
+        for (int i = 0; i < (4 + CLASSES) * PROPOSALS; i++) {
+            buffer.put(i, (byte) format.zeroPoint);
+        }
+        // Score 0.5 exato: não passa no limiar 0.5 (comparação estrita), 0.515625 passa.
+        buffer.put(4 * PROPOSALS, (byte) (32 + format.zeroPoint));
+        buffer.put(4 * PROPOSALS + 1, (byte) (33 + format.zeroPoint));
+
+        assertEquals(1, decoder.decode(0.5f, 1f));
+        assertEquals(33f / 64f, decoder.scores[0], 1e-6f);
+        assertEquals(0, decoder.classes[0]);
+    }
+
+    @Test
+    public void parallel_matchesSequentialOnLargeOutput() throws Exception {
+        int classes = 5;
+        int proposals = 33600;
+        YoloDecoder sequential = new YoloDecoder(classes, proposals);
+        YoloDecoder parallel = new YoloDecoder(classes, proposals);
+        Random random = new Random(7);
+        ByteBuffer output = sequential.getOutputBuffer();
+        for (int i = 0; i < (4 + classes) * proposals; i++) {
+            // Scores baixos com alguns picos, para ter candidatos espalhados e blocos vazios.
+            float value = i < 4 * proposals ? random.nextFloat() * 640f
+                    : random.nextFloat() < 0.01f ? 0.5f + random.nextFloat() * 0.5f : random.nextFloat() * 0.2f;
+            output.putFloat(i * 4, value);
+        }
+        parallel.getOutputBuffer().put(sequential.getOutputBuffer());
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            parallel.setParallelism(executor, 4);
+            int expected = sequential.decode(0.4f, 640f);
+            assertTrue(expected > 0);
+            for (int run = 0; run < 3; run++) {
+                assertEquals(expected, parallel.decode(0.4f, 640f));
+                assertArrayEquals(Arrays.copyOf(sequential.x1, expected), Arrays.copyOf(parallel.x1, expected), 0f);
+                assertArrayEquals(Arrays.copyOf(sequential.y2, expected), Arrays.copyOf(parallel.y2, expected), 0f);
+                assertArrayEquals(Arrays.copyOf(sequential.scores, expected), Arrays.copyOf(parallel.scores, expected), 0f);
+                assertArrayEquals(Arrays.copyOf(sequential.classes, expected), Arrays.copyOf(parallel.classes, expected));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.ecoscan.core;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import static org.junit.Assert.*;
+
+public class YuvFrameConverterTest {
+
+    private static final float DELTA = 1e-4f;
+
+    // Frame sintético W x H com luma = índice do pixel e croma neutro (128), planos U/V intercalados (pixelStride 2).
+    private static ByteBuffer[] grayFrame(int width, int height) {
+        ByteBuffer y = ByteBuffer.allocateDirect(width * height);
+        for (int i = 0; i < width * height; i++) {
+            y.put(i, (byte) (i * 10));
+        }
+        int uvSize = (height / 2) * width;
+        ByteBuffer u = ByteBuffer.allocateDirect(uvSize);
+        ByteBuffer v = ByteBuffer.allocateDirect(uvSize);
+        for (int i = 0; i < uvSize; i++) {
+            u.put(i, (byte) 128);
+            v.put(i, (byte) 128);
+        }
+        return new ByteBuffer[]{y, u, v};
+    }
+
+    private static ByteBuffer floatOutput(int floats) {
+        return ByteBuffer.allocateDirect(floats * 4).order(ByteOrder.nativeOrder());
+    }
+
+    private static float lumaAt(FloatBuffer out, int width, int x, int y) {
+        return out.get((y * width + x) * 3) * 255f;
+    }
+
+    @Test
+    public void neutralChroma_producesGrayNormalizedPixels() {
+        ByteBuffer[] planes = grayFrame(4, 2);
+        ByteBuffer raw = floatOutput(4 * 2 * 3);
+        new YuvFrameConverter(4, 2).convert(planes[0], 4, 1, planes[1], planes[2], 4, 2, 4, 2, 0, raw);
+        FloatBuffer out = raw.asFloatBuffer();
+
+        for (int i = 0; i < 8; i++) {
+            float expected = (i * 10) / 255f;
+            assertEquals(expected, out.get(i * 3), DELTA);
+            assertEquals(expected, out.get(i * 3 + 1), DELTA);
+            assertEquals(expected, out.get(i * 3 + 2), DELTA);
+        }
+    }
+
+    @Test
+    public void rotation90_mapsSourcePixelsClockwise() {
+        // Origem 4x2 girada 90° vira 2x4: saída(x, y) = origem(y, H - 1 - x).
+        ByteBuffer[] planes = grayFrame(4, 2);
+        ByteBuffer raw = floatOutput(2 * 4 * 3);
+        new YuvFrameConverter(2, 4).convert(planes[0], 4, 1, planes[1], planes[2], 4, 2, 4, 2, 90, raw);
+        FloatBuffer out = raw.asFloatBuffer();
+
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 2; x++) {
+                int sourceIndex = (2 - 1 - x) * 4 + y;
+                assertEquals(sourceIndex * 10, lumaAt(out, 2, x, y), 1e-2f);
+            }
+        }
+    }
+
+    @Test
+    public void rotation270_mapsSourcePixelsCounterClockwise() {
+        // saída(x, y) = origem(W - 1 - y, x).
+        ByteBuffer[] planes = grayFrame(4, 2);
+        ByteBuffer raw = floatOutput(2 * 4 * 3);
+        new YuvFrameConverter(2, 4).convert(planes[0], 4, 1, planes[1], planes[2], 4, 2, 4, 2, 270, raw);
+        FloatBuffer out = raw.asFloatBuffer();
+
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 2; x++) {
+                int sourceIndex = x * 4 + (4 - 1 - y);
+                assertEquals(sourceIndex * 10, lumaAt(out, 2, x, y), 1e-2f);
+            }
+        }
+    }
+
+    @Test
+    public void downscale_respectsRowStridePadding() {
+        // Linhas com 4 bytes de padding: o conversor não pode ler o padding como pixel.
+        int width = 4, height = 4, rowStride = 8;
+        ByteBuffer y = ByteBuffer.allocateDirect(rowStride * height);
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < rowStride; col++) {
+                y.put(row * rowStride + col, (byte) (col < width ? 100 : 255));
+            }
+        }
+        ByteBuffer u = ByteBuffer.allocateDirect(rowStride * height / 2);
+        ByteBuffer v = ByteBuffer.allocateDirect(rowStride * height / 2);
+        for (int i = 0; i < u.capacity(); i++) {
+            u.put(i, (byte) 128);
+            v.put(i, (byte) 128);
+        }
+        ByteBuffer raw = floatOutput(2 * 2 * 3);
+        new YuvFrameConverter(2, 2).convert(y, rowStride, 1, u, v, rowStride, 2, width, height, 0, raw);
+        FloatBuffer out = raw.asFloatBuffer();
+
+        for (int i = 0; i < out.capacity(); i++) {
+            assertEquals(100 / 255f, out.get(i), DELTA);
+        }
+    }
+
+    @Test
+    public void saturatedChroma_isClampedToValidRange() {
+        ByteBuffer y = ByteBuffer.allocateDirect(4);
+        ByteBuffer u = ByteBuffer.allocateDirect(2);
+        ByteBuffer v = ByteBuffer.allocateDirect(2);
+        for (int i = 0; i < 4; i++) y.put(i, (byte) 200);
+        for (int i = 0; i < 2; i++) {
+            u.put(i, (byte) 0);
+            v.put(i, (byte) 255);
+        }
+        ByteBuffer raw = floatOutput(4 * 3);
+        new YuvFrameConverter(2, 2).convert(y, 2, 1, u, v, 2, 2, 2, 2, 0, raw);
+        FloatBuffer out = raw.asFloatBuffer();
+
+        assertEquals(1f, out.get(0), DELTA);
+        for (int i = 0; i < out.capacity(); i++) {
+            assertTrue(out.get(i) >= 0f && out.get(i) <= 1f);
+        }
+    }
+
+    @Test
+    public void uint8Format_writesQuantizedPixels() {
+        // Escala 1/255 e zero 0: o valor bruto é o próprio pixel.
+        ByteBuffer[] planes = grayFrame(4, 2);
+        ByteBuffer out = ByteBuffer.allocateDirect(4 * 2 * 3);
+        TensorFormat format = new TensorFormat(TensorFormat.Type.UINT8, 1f / 255f, 0);
+        new YuvFrameConverter(4, 2, format).convert(planes[0], 4, 1, planes[1], planes[2], 4, 2, 4, 2, 0, out);
+
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i * 10, out.get(i * 3) & 0xFF);
+            assertEquals(i * 10, out.get(i * 3 + 2) & 0xFF);
+        }
+    }
+}